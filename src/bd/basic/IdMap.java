@@ -0,0 +1,98 @@
+package bd.basic;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+
+/**
+ * A map from identifiers to values, used by the registries of the diamonds.
+ *
+ * <p>If the {@link IdProvider} is an {@link OrdinalIdProvider}, the values are stored in an
+ * array indexed by the ordinal of the identifier. Otherwise, a {@link HashMap} is used.
+ *
+ * <p>Once a registry is fully built, it calls {@link #freeze()}. A frozen map does not change
+ * anymore, and can be read from multiple threads without synchronization, provided it was
+ * safely published, for instance via a final field.
+ *
+ * @param <Id> the identifier type
+ * @param <V> the type of the values
+ */
+public final class IdMap<Id, V> {
+
+  private final OrdinalIdProvider<Id> ordinals;
+
+  private Map<Id, V> map;
+
+  private Object[] values;
+
+  private boolean frozen;
+
+  public IdMap(final IdProvider<Id> ids) {
+    if (ids instanceof OrdinalIdProvider) {
+      this.ordinals = (OrdinalIdProvider<Id>) ids;
+      this.map = null;
+      this.values = new Object[0];
+    } else {
+      this.ordinals = null;
+      this.map = new HashMap<>();
+      this.values = null;
+    }
+  }
+
+  @SuppressWarnings("unchecked")
+  public V get(final Id id) {
+    if (ordinals == null) {
+      return map.get(id);
+    }
+
+    int ordinal = ordinals.getOrdinal(id);
+    if (ordinal >= 0 && ordinal < values.length) {
+      return (V) values[ordinal];
+    }
+    return null;
+  }
+
+  public boolean containsKey(final Id id) {
+    return get(id) != null;
+  }
+
+  public void put(final Id id, final V value) {
+    assert value != null : "IdMap does not support null values";
+    if (frozen) {
+      throw new IllegalStateException("IdMap is frozen and cannot be changed anymore");
+    }
+    if (ordinals == null) {
+      map.put(id, value);
+      return;
+    }
+
+    int ordinal = ordinals.getOrdinal(id);
+    if (ordinal < 0) {
+      throw new IllegalArgumentException(
+          "Ordinals are expected to be non-negative, but got " + ordinal + " for " + id);
+    }
+    if (ordinal >= values.length) {
+      values = Arrays.copyOf(values, ordinal + 1);
+    }
+    values[ordinal] = value;
+  }
+
+  /**
+   * Make this map read-only. Afterwards, {@link #put(Object, Object)} is not permitted.
+   *
+   * <p>A {@link HashMap} is replaced by an unmodifiable copy, so that it cannot be changed
+   * by accident anymore. The array for ordinals has exactly the needed size already.
+   */
+  public void freeze() {
+    if (!frozen && ordinals == null) {
+      map = Collections.unmodifiableMap(new HashMap<>(map));
+    }
+    frozen = true;
+  }
+
+  public boolean isFrozen() {
+    return frozen;
+  }
+}
@@ -0,0 +1,22 @@
+package bd.basic;
+
+/**
+ * An <code>OrdinalIdProvider</code> is an {@link IdProvider} that also assigns each identifier
+ * a dense, small, non-negative integer.
+ *
+ * <p>When a language provides ordinals, the registries of the diamonds store their entries in
+ * arrays indexed by the ordinal, instead of hash maps keyed by the identifier.
+ *
+ * @param <Id> the identifier type, typically some form of interned string construct
+ */
+public interface OrdinalIdProvider<Id> extends IdProvider<Id> {
+
+  /**
+   * Get the ordinal of an identifier. Ordinals are expected to be assigned in the order in
+   * which identifiers are created, starting at 0, so that they are dense.
+   *
+   * @param id an identifier returned by {@link #getId(String)}
+   * @return the ordinal of the identifier, which does not change
+   */
+  int getOrdinal(Id id);
+}
@@ -0,0 +1,21 @@
+package bd.basic.nodes;
+
+import com.oracle.truffle.api.nodes.NodeInterface;
+
+
+/**
+ * Nodes that evaluate to a value that is known when the node is created, typically literals,
+ * should implement this interface.
+ *
+ * <p>The diamonds use this information for instance to select primitives based on
+ * constant arguments.
+ */
+public interface Constant extends NodeInterface {
+
+  /**
+   * Get the value the node evaluates to.
+   *
+   * @return the constant value
+   */
+  Object getValue();
+}
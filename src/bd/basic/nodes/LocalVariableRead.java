@@ -0,0 +1,13 @@
+package bd.basic.nodes;
+
+import com.oracle.truffle.api.nodes.NodeInterface;
+
+
+/**
+ * Nodes that read a local variable of the current method or block should implement this
+ * interface.
+ *
+ * <p>Reads of local variables are cheap and free of side effects, which the diamonds can use
+ * for instance to select primitives based on the shape of the argument nodes.
+ */
+public interface LocalVariableRead extends NodeInterface {}
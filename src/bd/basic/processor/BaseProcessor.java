@@ -0,0 +1,139 @@
+package bd.basic.processor;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.List;
+import java.util.Map.Entry;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.AnnotationMirror;
+import javax.lang.model.element.AnnotationValue;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.tools.Diagnostic.Kind;
+import javax.tools.StandardLocation;
+
+
+/**
+ * Common functionality for the annotation processors of the diamonds.
+ *
+ * <p>The processors only refer to Black Diamonds and Truffle classes by name, so that they can
+ * be compiled before the rest of the code.
+ */
+public abstract class BaseProcessor extends AbstractProcessor {
+
+  protected static final String GENERATE_NODE_FACTORY =
+      "com.oracle.truffle.api.dsl.GenerateNodeFactory";
+
+  @Override
+  public SourceVersion getSupportedSourceVersion() {
+    return SourceVersion.latestSupported();
+  }
+
+  /**
+   * Get the mirrors of a repeatable annotation, either directly present, or wrapped in its
+   * container annotation.
+   */
+  protected List<AnnotationMirror> getRepeatable(final Element element, final String annotation,
+      final String container, final List<AnnotationMirror> result) {
+    for (AnnotationMirror m : element.getAnnotationMirrors()) {
+      String name = getName(m.getAnnotationType());
+      if (annotation.equals(name)) {
+        result.add(m);
+      } else if (container.equals(name)) {
+        for (AnnotationValue v : getList(getValue(m, "value"))) {
+          result.add((AnnotationMirror) v.getValue());
+        }
+      }
+    }
+    return result;
+  }
+
+  protected boolean hasAnnotation(final Element element, final String annotation) {
+    for (AnnotationMirror m : element.getAnnotationMirrors()) {
+      if (annotation.equals(getName(m.getAnnotationType()))) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  protected AnnotationValue getValue(final AnnotationMirror mirror, final String name) {
+    for (Entry<? extends ExecutableElement, ? extends AnnotationValue> e : processingEnv
+        .getElementUtils().getElementValuesWithDefaults(mirror).entrySet()) {
+      if (e.getKey().getSimpleName().contentEquals(name)) {
+        return e.getValue();
+      }
+    }
+    throw new IllegalArgumentException("Annotation has no value " + name);
+  }
+
+  /** Get a value of the annotation as Java source literal. */
+  protected String getLiteral(final AnnotationMirror mirror, final String name) {
+    return processingEnv.getElementUtils().getConstantExpression(
+        getValue(mirror, name).getValue());
+  }
+
+  @SuppressWarnings("unchecked")
+  protected static List<? extends AnnotationValue> getList(final AnnotationValue value) {
+    return (List<? extends AnnotationValue>) value.getValue();
+  }
+
+  /**
+   * Get the type of a class literal.
+   *
+   * @return the type, or null if it cannot be resolved yet
+   */
+  protected static TypeMirror getType(final AnnotationValue value) {
+    Object v = value.getValue();
+    if (v instanceof TypeMirror && ((TypeMirror) v).getKind() != TypeKind.ERROR) {
+      return (TypeMirror) v;
+    }
+    return null;
+  }
+
+  /** Get the name of the erased type, as it can be used in Java source. */
+  protected String getName(final TypeMirror type) {
+    return processingEnv.getTypeUtils().erasure(type).toString();
+  }
+
+  protected String getPackage(final TypeElement node) {
+    return processingEnv.getElementUtils().getPackageOf(node).getQualifiedName().toString();
+  }
+
+  /**
+   * Determine the name of the factory generated by the Truffle DSL. Factories of nested nodes
+   * are nested in the factory of the top-level class.
+   */
+  protected static String getFactoryName(final TypeElement node) {
+    Element enclosing = node.getEnclosingElement();
+    if (enclosing instanceof TypeElement) {
+      return getFactoryName((TypeElement) enclosing) + "." + node.getSimpleName() + "Factory";
+    }
+    return node.getQualifiedName() + "Factory";
+  }
+
+  /**
+   * Generate a {@code native-image.properties} file that initializes the given classes at
+   * image build time. Thus, a generated registry and its singleton can be part of the image
+   * heap, like the classes of the diamonds, see {@code bd.nativeimage.BlackDiamondsFeature}.
+   *
+   * @param registry the qualified name of the generated registry, which also names the file
+   * @param classes the binary names of the classes to initialize at build time
+   */
+  protected void generateNativeImageProperties(final String registry,
+      final List<String> classes) {
+    String file = "META-INF/native-image/bd-generated/" + registry + "/native-image.properties";
+    try (PrintWriter w = new PrintWriter(processingEnv.getFiler().createResource(
+        StandardLocation.CLASS_OUTPUT, "", file).openWriter())) {
+      w.println("Args = --initialize-at-build-time=" + String.join(",", classes));
+    } catch (IOException e) {
+      processingEnv.getMessager().printMessage(Kind.ERROR,
+          "Failed to generate " + file + ": " + e.getMessage());
+    }
+  }
+}
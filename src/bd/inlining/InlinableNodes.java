@@ -1,15 +1,20 @@
 package bd.inlining;
 
 import java.lang.reflect.Constructor;
-import java.util.HashMap;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.function.Function;
 
 import com.oracle.truffle.api.dsl.NodeFactory;
 import com.oracle.truffle.api.nodes.Node;
 import com.oracle.truffle.api.source.SourceSection;
 
+import bd.basic.IdMap;
 import bd.basic.IdProvider;
 import bd.basic.ProgramDefinitionError;
+import bd.basic.nodes.Constant;
+import bd.inlining.Inliner.ConstructorInliner;
 import bd.inlining.Inliner.FactoryInliner;
 import bd.settings.VmSettings;
 
@@ -21,7 +26,11 @@ import bd.settings.VmSettings;
  * <p>A typical use case would be in a parser, which can use the
  * {@link #inline(Object, List, ScopeBuilder, SourceSection)} to request inlining.
  * For this purpose, {@link InlinableNodes} takes a list of node classes and factories as
- * candidates for inlining.
+ * candidates for inlining, or the {@link InlinerRegistry} objects generated for them.
+ *
+ * <p>An {@link InlinableNodes} object is immutable after construction, and does not depend on
+ * a language context. Thus, it can be created once, for instance per engine, and be shared
+ * by all contexts and parser threads without synchronization.
  *
  * @param <Id> the type of the identifiers used for mapping to primitives, typically some form
  *          of interned string construct (see {@link IdProvider})
@@ -32,7 +41,10 @@ public final class InlinableNodes<Id> {
   private final IdProvider<Id> ids;
 
   /** Inlinable nodes for selector. */
-  private final HashMap<Id, Inliner> inlinableNodes;
+  private final IdMap<Id, Inliner> inlinableNodes;
+
+  /** All inliners, in the order in which they were registered. */
+  private final List<Inliner> inliners;
 
   /**
    * Initialize this registry for inlinable nodes.
@@ -47,9 +59,43 @@ public final class InlinableNodes<Id> {
       final List<Class<? extends Node>> inlinableNodes,
       final List<NodeFactory<? extends Node>> inlinableFactories) {
     this.ids = ids;
-    this.inlinableNodes = new HashMap<>();
+    this.inlinableNodes = new IdMap<>(ids);
+    this.inliners = new ArrayList<>();
     initializeNodes(inlinableNodes);
     initializeFactories(inlinableFactories);
+    this.inlinableNodes.freeze();
+  }
+
+  /**
+   * Initialize this registry for inlinable nodes from generated {@link InlinerRegistry}
+   * objects. In contrast to using node classes and factories, this does not require
+   * reflection.
+   *
+   * @param ids an id provider to convert strings to identifiers
+   * @param registries the generated registries
+   */
+  public InlinableNodes(final IdProvider<Id> ids, final InlinerRegistry... registries) {
+    this.ids = ids;
+    this.inlinableNodes = new IdMap<>(ids);
+    this.inliners = new ArrayList<>();
+
+    List<Inliner> generated = new ArrayList<>();
+    for (InlinerRegistry r : registries) {
+      r.addInliners(generated);
+    }
+
+    for (Inliner inliner : generated) {
+      register(inliner);
+    }
+    this.inlinableNodes.freeze();
+  }
+
+  private void register(final Inliner inliner) {
+    assert !"".equals(inliner.getSelector());
+    Id selector = ids.getId(inliner.getSelector());
+    assert !this.inlinableNodes.containsKey(selector);
+    this.inlinableNodes.put(selector, inliner);
+    this.inliners.add(inliner);
   }
 
   private void initializeNodes(final List<Class<? extends Node>> inlinableNodes) {
@@ -67,14 +113,10 @@ public final class InlinableNodes<Id> {
               + " or be used via node factories.";
 
       for (Inline inAn : ann) {
-        assert !"".equals(inAn.selector());
-        Id selector = ids.getId(inAn.selector());
-        assert !this.inlinableNodes.containsKey(selector);
-
         @SuppressWarnings("unchecked")
-        Inliner inliner = new Inliner(inAn, (Constructor<? extends Node>) ctors[0]);
-
-        this.inlinableNodes.put(selector, inliner);
+        Inliner inliner =
+            new ConstructorInliner(inAn, (Constructor<? extends Node>) ctors[0]);
+        register(inliner);
       }
     }
   }
@@ -90,12 +132,7 @@ public final class InlinableNodes<Id> {
       assert ann != null;
 
       for (Inline inAn : ann) {
-        assert !"".equals(inAn.selector());
-        Id selector = ids.getId(inAn.selector());
-
-        assert !this.inlinableNodes.containsKey(selector);
-        Inliner inliner = new FactoryInliner(inAn, fact);
-        this.inlinableNodes.put(selector, inliner);
+        register(new FactoryInliner(inAn, fact));
       }
     }
   }
@@ -116,7 +153,8 @@ public final class InlinableNodes<Id> {
    * @param builder used for providing context to the inlining operation
    * @param source the source section of the potential node
    * @return the inlined version of the potential node, or {@code null}, if inlining is not
-   *         applicable
+   *         applicable. If the receiver is a {@link Constant}, this may be the inlined
+   *         argument node that is used instead, see {@link Inline#foldIfTrueArgIdx()}
    * @throws ProgramDefinitionError in case the inlining would result in a structural violation
    *           of program definition constraints. The error is language specific and not
    *           triggered by the inlining logic.
@@ -124,16 +162,124 @@ public final class InlinableNodes<Id> {
   public <N extends Node, S extends ScopeBuilder<S>> N inline(final Id selector,
       final List<N> argNodes, final S builder, final SourceSection source)
       throws ProgramDefinitionError {
+    return inline(selector, argNodes, builder, source, null);
+  }
+
+  /**
+   * Try to construct an inlined version for a potential node, like
+   * {@link #inline(Object, List, ScopeBuilder, SourceSection)}, if the policy agrees.
+   *
+   * <p>With an {@link InliningBudget}, large arguments or deeply nested inlining fall back
+   * to the potential node, so that methods do not grow beyond what can be compiled.
+   *
+   * @param <N> the node type of the return value
+   * @param <S> the type of the {@link ScopeBuilder}
+   *
+   * @param selector to identify a potential inline replacement
+   * @param argNodes the argument/child nodes to the potential node
+   * @param builder used for providing context to the inlining operation
+   * @param source the source section of the potential node
+   * @param policy decides whether to inline, typically one per method, or null to inline
+   *          whenever possible
+   * @return the inlined version of the potential node, or {@code null}, if inlining is not
+   *         applicable or the policy rejected it
+   * @throws ProgramDefinitionError in case the inlining would result in a structural violation
+   *           of program definition constraints
+   */
+  public <N extends Node, S extends ScopeBuilder<S>> N inline(final Id selector,
+      final List<N> argNodes, final S builder, final SourceSection source,
+      final InliningPolicy policy) throws ProgramDefinitionError {
     Inliner inliner = inlinableNodes.get(selector);
-    if (inliner == null || (VmSettings.DYNAMIC_METRICS && inliner.isDisabled())) {
+    if (inliner == null) {
+      return null;
+    }
+    return inliner.inline(argNodes, builder, source, policy);
+  }
+
+  /**
+   * Prepare inlining for a potential node, but defer the creation of the inlined node, see
+   * {@link LazyInlining}. This allows a parser to create a cheap placeholder node instead of
+   * the inlined node, which is replaced on its first execution.
+   *
+   * @param <N> the node type of the inlined node
+   * @param <S> the type of the {@link ScopeBuilder}
+   *
+   * @param selector to identify a potential inline replacement
+   * @param argNodes the argument/child nodes to the potential node
+   * @param builder used for providing context to the inlining operation, of which a
+   *          {@link ScopeBuilder#snapshot()} is kept until the node is inlined
+   * @param source the source section of the potential node
+   * @return the deferred inlining, or {@code null}, if inlining is not applicable
+   */
+  public <N extends Node, S extends ScopeBuilder<S>> LazyInlining<N> inlineLazily(
+      final Id selector, final List<N> argNodes, final S builder,
+      final SourceSection source) {
+    Inliner inliner = getLazyInliner(selector, argNodes);
+    if (inliner == null) {
+      return null;
+    }
+    return new LazyInlining<>(inliner, argNodes, snapshot(builder), source);
+  }
+
+  /**
+   * Prepare inlining for a potential node like
+   * {@link #inlineLazily(Object, List, ScopeBuilder, SourceSection)}, if the policy agrees.
+   *
+   * <p>The policy decides when the inlining is deferred. Since the inlined node does not
+   * exist yet, the policy is notified with the placeholder node, which stands for the inlined
+   * node in the method, for instance when an {@link InliningBudget} determines the nesting
+   * depth of later inlined nodes.
+   *
+   * @param <N> the node type of the inlined node
+   * @param <P> the type of the placeholder node
+   * @param <S> the type of the {@link ScopeBuilder}
+   *
+   * @param selector to identify a potential inline replacement
+   * @param argNodes the argument/child nodes to the potential node
+   * @param builder used for providing context to the inlining operation, of which a
+   *          {@link ScopeBuilder#snapshot()} is kept until the node is inlined
+   * @param source the source section of the potential node
+   * @param policy decides whether to inline, typically one per method, or null to inline
+   *          whenever possible
+   * @param createPlaceholder creates the placeholder node for the deferred inlining
+   * @return the placeholder node, or {@code null}, if inlining is not applicable or the
+   *         policy rejected it
+   */
+  public <N extends Node, P extends Node, S extends ScopeBuilder<S>> P inlineLazily(
+      final Id selector, final List<N> argNodes, final S builder,
+      final SourceSection source, final InliningPolicy policy,
+      final Function<LazyInlining<N>, P> createPlaceholder) {
+    Inliner inliner = getLazyInliner(selector, argNodes);
+    if (inliner == null || (policy != null && !policy.shouldInline(inliner, argNodes))) {
       return null;
     }
 
-    if (!inliner.matches(argNodes)) {
+    LazyInlining<N> lazy = new LazyInlining<>(inliner, argNodes, snapshot(builder), source);
+    P placeholder = createPlaceholder.apply(lazy);
+    if (policy != null) {
+      policy.inlined(inliner, placeholder);
+    }
+    return placeholder;
+  }
+
+  private Inliner getLazyInliner(final Id selector, final List<? extends Node> argNodes) {
+    Inliner inliner = inlinableNodes.get(selector);
+    if (inliner == null || (VmSettings.DYNAMIC_METRICS && inliner.isDisabled())
+        || !inliner.matches(argNodes)) {
       return null;
     }
+    return inliner;
+  }
 
-    return inliner.create(argNodes, builder, source);
+  private static <S extends ScopeBuilder<S>> S snapshot(final S builder) {
+    return builder == null ? null : builder.snapshot();
+  }
+
+  /**
+   * Get all inliners, in the order in which they were registered, as an unmodifiable list.
+   */
+  public List<Inliner> getInliners() {
+    return Collections.unmodifiableList(inliners);
   }
 
   /**
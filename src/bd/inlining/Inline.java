@@ -10,6 +10,11 @@ import java.lang.annotation.Target;
 /**
  * Annotation that marks nodes as inlined versions for language constructs.
  * More complex nodes/constructs are to be replaced by these nodes in the parser.
+ *
+ * <p>If the receiver is a boolean {@link bd.basic.nodes.Constant}, a node can be folded
+ * already before it is created, see {@link #foldIfTrueArgIdx()} and
+ * {@link #foldIfFalseArgIdx()}. Thus, for instance only the live branch of a conditional is
+ * inlined.
  */
 @Retention(RetentionPolicy.RUNTIME)
 @Target({ElementType.TYPE})
@@ -51,6 +56,22 @@ public @interface Inline {
    */
   boolean disabled() default false;
 
+  /**
+   * If the receiver, i.e., the first argument node, is a {@link bd.basic.nodes.Constant} with
+   * the value {@code true}, the argument node at this index is used instead of this node. If
+   * it is inlinable, it is inlined. The other argument nodes are discarded.
+   *
+   * @return index of the argument node, or -1 if the node is not folded
+   */
+  int foldIfTrueArgIdx() default -1;
+
+  /**
+   * Like {@link #foldIfTrueArgIdx()}, but for a receiver with the value {@code false}.
+   *
+   * @return index of the argument node, or -1 if the node is not folded
+   */
+  int foldIfFalseArgIdx() default -1;
+
   /**
    * Represents a true value for an additional argument.
    * Can be used for {@link #additionalArgs()}.
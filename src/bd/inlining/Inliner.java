@@ -9,141 +9,355 @@ import com.oracle.truffle.api.nodes.Node;
 import com.oracle.truffle.api.source.SourceSection;
 
 import bd.basic.ProgramDefinitionError;
+import bd.basic.nodes.Constant;
 import bd.inlining.Inline.False;
 import bd.inlining.Inline.True;
 import bd.inlining.nodes.Inlinable;
 import bd.inlining.nodes.WithSource;
+import bd.settings.VmSettings;
 
 
-class Inliner {
-  protected final Inline inline;
+/**
+ * An <code>Inliner</code> creates the inlined node for one @{@link Inline} annotation.
+ *
+ * <p>The values of the annotation are read once, when the inliner is created, so that
+ * {@link #matches(List)} and {@link #create(List, ScopeBuilder, SourceSection)} do not need to
+ * access the annotation again.
+ *
+ * <p>Inliners are either created reflectively by {@link InlinableNodes} from node classes and
+ * factories, or they are generated at compile time by the
+ * {@link bd.inlining.processor.InlineProcessor}, in which case they instantiate the node
+ * directly.
+ */
+public abstract class Inliner {
+  private final String selector;
 
-  private final Constructor<? extends Node> ctor;
+  /** Indexes of the argument nodes that need to be inlinable. */
+  protected final int[] inlineableArgIdx;
 
-  Inliner(final Inline inline, final Constructor<? extends Node> ctor) {
-    this.inline = inline;
-    this.ctor = ctor;
+  /** Indexes of the argument nodes that need a temporary variable. */
+  protected final int[] introduceTemps;
+
+  /** Values of the additional arguments, i.e., boxed booleans. */
+  protected final Object[] additionalArgs;
+
+  private final boolean disabled;
+
+  /** See {@link Inline#foldIfTrueArgIdx()}. */
+  private final int foldIfTrueArgIdx;
+
+  /** See {@link Inline#foldIfFalseArgIdx()}. */
+  private final int foldIfFalseArgIdx;
+
+  protected Inliner(final String selector, final int[] inlineableArgIdx,
+      final int[] introduceTemps, final Object[] additionalArgs, final boolean disabled) {
+    this(selector, inlineableArgIdx, introduceTemps, additionalArgs, disabled, -1, -1);
+  }
+
+  protected Inliner(final String selector, final int[] inlineableArgIdx,
+      final int[] introduceTemps, final Object[] additionalArgs, final boolean disabled,
+      final int foldIfTrueArgIdx, final int foldIfFalseArgIdx) {
+    this.selector = selector;
+    this.inlineableArgIdx = inlineableArgIdx;
+    this.introduceTemps = introduceTemps;
+    this.additionalArgs = additionalArgs;
+    this.disabled = disabled;
+    this.foldIfTrueArgIdx = foldIfTrueArgIdx;
+    this.foldIfFalseArgIdx = foldIfFalseArgIdx;
+  }
+
+  protected Inliner(final Inline inline) {
+    this(inline.selector(), inline.inlineableArgIdx(), inline.introduceTemps(),
+        getAdditionalArgs(inline), inline.disabled(), inline.foldIfTrueArgIdx(),
+        inline.foldIfFalseArgIdx());
+  }
+
+  private static Object[] getAdditionalArgs(final Inline inline) {
+    Class<?>[] classes = inline.additionalArgs();
+    Object[] values = new Object[classes.length];
+    for (int i = 0; i < classes.length; i += 1) {
+      if (classes[i] == True.class) {
+        values[i] = Boolean.TRUE;
+      } else {
+        assert classes[i] == False.class;
+        values[i] = Boolean.FALSE;
+      }
+    }
+    return values;
+  }
+
+  public final String getSelector() {
+    return selector;
   }
 
   public boolean isDisabled() {
-    return inline.disabled();
+    return disabled;
   }
 
-  public boolean matches(final List<? extends Node> argNodes) {
-    int[] args = inline.inlineableArgIdx();
-    assert args != null;
+  /**
+   * Whether the argument node at the given index is inlined, see
+   * {@link Inline#inlineableArgIdx()}. This allows an {@link InliningPolicy} to determine the
+   * size of the inlined node.
+   *
+   * @param argIdx the index of the argument node
+   * @return true, if the argument node is inlined
+   */
+  public final boolean isInlinedArg(final int argIdx) {
+    for (int i : inlineableArgIdx) {
+      if (i == argIdx) {
+        return true;
+      }
+    }
+    return false;
+  }
 
+  public boolean matches(final List<? extends Node> argNodes) {
     boolean allInlinable = true;
-    for (int i : args) {
+    for (int i : inlineableArgIdx) {
       allInlinable &= argNodes.get(i) instanceof Inlinable;
     }
     return allInlinable;
   }
 
-  @SuppressWarnings({"unchecked", "rawtypes"})
-  public <N extends Node> N create(final List<N> argNodes, final ScopeBuilder scopeBuilder,
-      final SourceSection source) throws ProgramDefinitionError {
-    Object[] args = new Object[argNodes.size() + inline.inlineableArgIdx().length
-        + inline.additionalArgs().length];
+  /**
+   * Create the inlined node, if the inliner is enabled, and the argument nodes match.
+   * If the receiver is a boolean {@link Constant}, and the annotation gives an argument node
+   * for its value, see {@link Inline#foldIfTrueArgIdx()}, only this argument node is inlined,
+   * and the node itself is not created.
+   *
+   * @param <N> the node type of the return value
+   *
+   * @param argNodes the argument nodes of the potential node that is replaced
+   * @param scopeBuilder used for providing context to the inlining operation
+   * @param source the source section of the new node
+   * @return the inlined node, or null if the inliner does not apply
+   * @throws ProgramDefinitionError in case inlining would violate language constraints
+   */
+  @SuppressWarnings("rawtypes")
+  public final <N extends Node> N inline(final List<N> argNodes,
+      final ScopeBuilder scopeBuilder, final SourceSection source)
+      throws ProgramDefinitionError {
+    return inline(argNodes, scopeBuilder, source, null);
+  }
 
-    assert args.length == ctor.getParameterCount();
+  /**
+   * Create the inlined node like {@link #inline(List, ScopeBuilder, SourceSection)}, if the
+   * given policy agrees.
+   *
+   * @param <N> the node type of the return value
+   *
+   * @param argNodes the argument nodes of the potential node that is replaced
+   * @param scopeBuilder used for providing context to the inlining operation
+   * @param source the source section of the new node
+   * @param policy decides whether to inline, or null to inline whenever the inliner applies
+   * @return the inlined node, or null if the inliner does not apply
+   * @throws ProgramDefinitionError in case inlining would violate language constraints
+   */
+  @SuppressWarnings("rawtypes")
+  public final <N extends Node> N inline(final List<N> argNodes,
+      final ScopeBuilder scopeBuilder, final SourceSection source,
+      final InliningPolicy policy) throws ProgramDefinitionError {
+    if ((VmSettings.DYNAMIC_METRICS && disabled) || !matches(argNodes)) {
+      return null;
+    }
 
-    int i = 0;
-    for (N arg : argNodes) {
-      args[i] = arg;
-      i += 1;
+    if (policy != null && !policy.shouldInline(this, argNodes)) {
+      return null;
     }
 
-    for (int a : inline.inlineableArgIdx()) {
-      args[i] = ((Inlinable) argNodes.get(a)).inline(scopeBuilder);
-      i += 1;
+    int folded = getFoldedArgIdx(argNodes);
+    N node;
+    if (folded >= 0) {
+      node = inlineArgument(argNodes.get(folded), scopeBuilder);
+    } else {
+      node = create(argNodes, scopeBuilder, source);
     }
 
-    for (Class<?> c : inline.additionalArgs()) {
-      if (c == True.class) {
-        args[i] = true;
-      } else {
-        assert c == False.class;
-        args[i] = false;
-      }
-      i += 1;
+    if (policy != null) {
+      policy.inlined(this, node);
     }
-    try {
-      N node = (N) ctor.newInstance(args);
-      ((WithSource) node).initialize(source);
-      return node;
-    } catch (InstantiationException | IllegalAccessException | IllegalArgumentException
-        | InvocationTargetException e) {
-      throw new RuntimeException(e);
+    return node;
+  }
+
+  /**
+   * Determine the argument node that is used instead of the inlined node, based on the value
+   * of a constant receiver.
+   *
+   * @return the index of the argument node, or -1 if the node is not folded
+   */
+  private int getFoldedArgIdx(final List<? extends Node> argNodes) {
+    if ((foldIfTrueArgIdx < 0 && foldIfFalseArgIdx < 0) || argNodes.isEmpty()
+        || !(argNodes.get(0) instanceof Constant)) {
+      return -1;
     }
+
+    Object receiver = ((Constant) argNodes.get(0)).getValue();
+    if (receiver == Boolean.TRUE) {
+      return foldIfTrueArgIdx;
+    } else if (receiver == Boolean.FALSE) {
+      return foldIfFalseArgIdx;
+    }
+    return -1;
+  }
+
+  @SuppressWarnings({"unchecked", "rawtypes"})
+  private static <N extends Node> N inlineArgument(final N argNode,
+      final ScopeBuilder scopeBuilder) {
+    if (argNode instanceof Inlinable) {
+      return (N) ((Inlinable) argNode).inline(scopeBuilder);
+    }
+    return argNode;
   }
 
   /**
-   * Nodes that use a factory are expected to be structured so that the first argNodes are
-   * going to be evaluated by the DSL, which means, they are going to be appended at the end
-   * of the args array.
+   * Create the inlined node.
    *
-   * <p>The rest is treated as normal, first the args, then the inlined args,
-   * then possibly to be introduced temps, and finally possible additional args.
+   * @param <N> the node type of the return value
    *
-   * @param <ExprT>
-   * @param <NodeState>
-   * @param <MethodT>
-   * @param <OuterT>
-   * @param <S>
-   * @param <SB>
+   * @param argNodes the argument nodes of the potential node that is replaced
+   * @param scopeBuilder used for providing context to the inlining operation
+   * @param source the source section of the new node
+   * @return the inlined node
+   * @throws ProgramDefinitionError in case inlining would violate language constraints
    */
-  static class FactoryInliner extends Inliner {
-    private final NodeFactory<? extends Node> factory;
+  @SuppressWarnings("rawtypes")
+  public abstract <N extends Node> N create(List<N> argNodes, ScopeBuilder scopeBuilder,
+      SourceSection source) throws ProgramDefinitionError;
 
-    FactoryInliner(final Inline inline, final NodeFactory<? extends Node> factory) {
-      super(inline, null);
-      this.factory = factory;
-    }
+  /**
+   * The positions of the arguments in the array that is passed to the constructor or factory
+   * of a node. The layout is computed once per inliner, so that creating a node only needs to
+   * fill a single array.
+   */
+  static final class ArgumentLayout {
+    /** The length of the argument array. */
+    private final int numArgs;
 
-    @Override
-    @SuppressWarnings({"unchecked", "rawtypes"})
-    public <N extends Node> N create(final List<N> argNodes, final ScopeBuilder scopeBuilder,
-        final SourceSection source) throws ProgramDefinitionError {
-      Object[] args = new Object[argNodes.size() + inline.inlineableArgIdx().length
-          + inline.introduceTemps().length + inline.additionalArgs().length];
+    /** The position of each argument node. */
+    private final int[] argNodeSlots;
 
-      assert args.length == factory.getNodeSignatures().get(0).size();
+    /** The position of the first inlined argument, followed by the temps. */
+    private final int inlinedOffset;
 
-      int restArgs = factory.getExecutionSignature().size();
+    /** The indexes of the argument nodes that need a temporary variable. */
+    private final int[] temps;
 
-      int i = 0;
-      for (int j = 0; j < argNodes.size(); j += 1) {
-        if (j < restArgs) {
-          int endOffset = args.length - restArgs + j;
-          args[endOffset] = argNodes.get(j);
+    /** The position of the first additional argument. */
+    private final int additionalOffset;
+
+    /**
+     * Compute the layout.
+     *
+     * @param numArgs the number of parameters of the constructor or factory
+     * @param numChildren the number of argument nodes that are passed as last arguments,
+     *          because they are evaluated by the DSL
+     * @param inliner the inliner providing the other arguments
+     * @param temps the indexes of the argument nodes that need a temporary variable
+     */
+    ArgumentLayout(final int numArgs, final int numChildren, final Inliner inliner,
+        final int[] temps) {
+      this.numArgs = numArgs;
+      this.temps = temps;
+      this.additionalOffset = numArgs - inliner.additionalArgs.length - numChildren;
+      this.inlinedOffset = additionalOffset - temps.length - inliner.inlineableArgIdx.length;
+
+      this.argNodeSlots = new int[inlinedOffset + numChildren];
+      for (int j = 0; j < argNodeSlots.length; j += 1) {
+        if (j < numChildren) {
+          argNodeSlots[j] = numArgs - numChildren + j;
         } else {
-          args[i] = argNodes.get(j);
-          i += 1;
+          argNodeSlots[j] = j - numChildren;
         }
       }
+    }
 
-      for (int a : inline.inlineableArgIdx()) {
+    /**
+     * Create the argument array for the given argument nodes.
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    Object[] createArguments(final Inliner inliner, final List<? extends Node> argNodes,
+        final ScopeBuilder scopeBuilder, final SourceSection source)
+        throws ProgramDefinitionError {
+      assert argNodes.size() == argNodeSlots.length;
+      Object[] args = new Object[numArgs];
+
+      for (int j = 0; j < argNodeSlots.length; j += 1) {
+        args[argNodeSlots[j]] = argNodes.get(j);
+      }
+
+      int i = inlinedOffset;
+      for (int a : inliner.inlineableArgIdx) {
         args[i] = ((Inlinable) argNodes.get(a)).inline(scopeBuilder);
         i += 1;
       }
 
-      for (int a : inline.introduceTemps()) {
+      for (int a : temps) {
         args[i] = scopeBuilder.introduceTempForInlinedVersion(
             (Inlinable) argNodes.get(a), source);
+        i += 1;
       }
 
-      for (Class<?> c : inline.additionalArgs()) {
-        if (c == True.class) {
-          args[i] = true;
-        } else {
-          assert c == False.class;
-          args[i] = false;
-        }
-        i += 1;
+      System.arraycopy(inliner.additionalArgs, 0, args, additionalOffset,
+          inliner.additionalArgs.length);
+      return args;
+    }
+  }
+
+  /**
+   * Inliner for node classes that do not use a factory, and are instantiated with their only
+   * constructor.
+   */
+  static final class ConstructorInliner extends Inliner {
+    private final Constructor<? extends Node> ctor;
+    private final ArgumentLayout layout;
+
+    ConstructorInliner(final Inline inline, final Constructor<? extends Node> ctor) {
+      super(inline);
+      this.ctor = ctor;
+      this.layout = new ArgumentLayout(ctor.getParameterCount(), 0, this, new int[0]);
+    }
+
+    @Override
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    public <N extends Node> N create(final List<N> argNodes, final ScopeBuilder scopeBuilder,
+        final SourceSection source) throws ProgramDefinitionError {
+      Object[] args = layout.createArguments(this, argNodes, scopeBuilder, source);
+      try {
+        N node = (N) ctor.newInstance(args);
+        ((WithSource) node).initialize(source);
+        return node;
+      } catch (InstantiationException | IllegalAccessException | IllegalArgumentException
+          | InvocationTargetException e) {
+        throw new RuntimeException(e);
       }
+    }
+  }
 
-      N node = (N) factory.createNode(args);
+  /**
+   * Nodes that use a factory are expected to be structured so that the first argNodes are
+   * going to be evaluated by the DSL, which means, they are going to be appended at the end
+   * of the args array.
+   *
+   * <p>The rest is treated as normal, first the args, then the inlined args,
+   * then possibly to be introduced temps, and finally possible additional args.
+   */
+  static final class FactoryInliner extends Inliner {
+    private final NodeFactory<? extends Node> factory;
+    private final ArgumentLayout layout;
+
+    FactoryInliner(final Inline inline, final NodeFactory<? extends Node> factory) {
+      super(inline);
+      this.factory = factory;
+      this.layout = new ArgumentLayout(factory.getNodeSignatures().get(0).size(),
+          factory.getExecutionSignature().size(), this, introduceTemps);
+    }
+
+    @Override
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    public <N extends Node> N create(final List<N> argNodes, final ScopeBuilder scopeBuilder,
+        final SourceSection source) throws ProgramDefinitionError {
+      N node = (N) factory.createNode(
+          layout.createArguments(this, argNodes, scopeBuilder, source));
       ((WithSource) node).initialize(source);
       return node;
     }
@@ -0,0 +1,22 @@
+package bd.inlining;
+
+import java.util.List;
+
+
+/**
+ * An <code>InlinerRegistry</code> provides the {@link Inliner} objects for a set of
+ * nodes marked with @{@link Inline}, without using reflection.
+ *
+ * <p>Registries are generated at compile time by the
+ * {@link bd.inlining.processor.InlineProcessor}, which emits one registry per package that
+ * contains nodes marked with @{@link Inline}.
+ */
+public interface InlinerRegistry {
+
+  /**
+   * Add the inliners of this registry to the given list.
+   *
+   * @param list the list to which the inliners are added
+   */
+  void addInliners(List<Inliner> list);
+}
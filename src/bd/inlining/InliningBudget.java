@@ -0,0 +1,116 @@
+package bd.inlining;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+
+import com.oracle.truffle.api.nodes.Node;
+import com.oracle.truffle.api.nodes.NodeUtil;
+import com.oracle.truffle.api.nodes.NodeVisitor;
+
+
+/**
+ * The default {@link InliningPolicy}, which limits the number of nodes that are inlined into
+ * a method, and how deeply inlined nodes are nested in each other.
+ *
+ * <p>The size of an inlined node is estimated by the number of nodes of the arguments that
+ * are inlined, excluding nodes that were inlined before. The nesting depth is determined from
+ * the inlined nodes that this budget recorded before, and that are part of the arguments.
+ *
+ * <p>A budget is meant to be used for a single method, and is not thread-safe.
+ */
+public class InliningBudget implements InliningPolicy {
+
+  /** The default number of nodes that may be inlined into a method. */
+  public static final int DEFAULT_NODE_BUDGET = 10_000;
+
+  /** The default limit for nesting inlined nodes in each other. */
+  public static final int DEFAULT_MAX_DEPTH = 8;
+
+  private final int nodeBudget;
+  private final int maxDepth;
+
+  /** The nesting depth of the inlined nodes, starting with 1. */
+  private final IdentityHashMap<Node, Integer> depths;
+
+  private int inlinedNodes;
+
+  /** The size and depth of the node that {@link #shouldInline} accepted last. */
+  private int pendingSize;
+  private int pendingDepth;
+
+  private int measuredSize;
+  private int measuredDepth;
+
+  private final List<Node> workList;
+  private final NodeVisitor addChild;
+
+  /** Create a budget with {@link #DEFAULT_NODE_BUDGET} and {@link #DEFAULT_MAX_DEPTH}. */
+  public InliningBudget() {
+    this(DEFAULT_NODE_BUDGET, DEFAULT_MAX_DEPTH);
+  }
+
+  /**
+   * Create a budget.
+   *
+   * @param nodeBudget the number of nodes that may be inlined into the method
+   * @param maxDepth the limit for nesting inlined nodes in each other
+   */
+  public InliningBudget(final int nodeBudget, final int maxDepth) {
+    this.nodeBudget = nodeBudget;
+    this.maxDepth = maxDepth;
+    this.depths = new IdentityHashMap<>();
+    this.workList = new ArrayList<>();
+    this.addChild = workList::add;
+  }
+
+  @Override
+  public boolean shouldInline(final Inliner inliner, final List<? extends Node> argNodes) {
+    measuredSize = 0;
+    measuredDepth = 0;
+    for (int i = 0; i < argNodes.size(); i += 1) {
+      if (inliner.isInlinedArg(i)) {
+        measure(argNodes.get(i));
+      }
+    }
+
+    int depth = measuredDepth + 1;
+    if (depth > maxDepth || inlinedNodes + measuredSize > nodeBudget) {
+      return false;
+    }
+
+    pendingSize = measuredSize;
+    pendingDepth = depth;
+    return true;
+  }
+
+  @Override
+  public void inlined(final Inliner inliner, final Node node) {
+    inlinedNodes += pendingSize;
+    depths.put(node, pendingDepth);
+  }
+
+  /**
+   * Count the nodes of the tree, and determine the maximal depth of the inlined nodes in it.
+   * Inlined nodes were already counted when they were inlined, and are not counted again.
+   */
+  private void measure(final Node root) {
+    workList.add(root);
+
+    while (!workList.isEmpty()) {
+      Node node = workList.remove(workList.size() - 1);
+      Integer d = depths.get(node);
+      if (d != null) {
+        measuredDepth = Math.max(measuredDepth, d);
+      } else {
+        measuredSize += 1;
+        NodeUtil.forEachChild(node, addChild);
+      }
+    }
+  }
+
+  /** The number of nodes that were inlined into the method so far. */
+  public int getInlinedNodes() {
+    return inlinedNodes;
+  }
+}
@@ -0,0 +1,37 @@
+package bd.inlining;
+
+import java.util.List;
+
+import com.oracle.truffle.api.nodes.Node;
+import com.oracle.truffle.api.source.SourceSection;
+
+
+/**
+ * An <code>InliningPolicy</code> decides whether an {@link Inliner} that matches the argument
+ * nodes is actually used, for instance to limit the size of a method.
+ *
+ * <p>A policy is typically created per method that is parsed, and passed to
+ * {@link InlinableNodes#inline(Object, List, ScopeBuilder, SourceSection, InliningPolicy)}.
+ * See {@link InliningBudget} for the default policy.
+ */
+public interface InliningPolicy {
+
+  /**
+   * Decide whether to inline.
+   *
+   * @param inliner the inliner that matches the argument nodes
+   * @param argNodes the argument nodes, of which the ones at
+   *          {@link Inline#inlineableArgIdx()} are going to be inlined, see
+   *          {@link Inliner#isInlinedArg(int)}
+   * @return true, if the inlined node is to be created, false if the send is not inlined
+   */
+  boolean shouldInline(Inliner inliner, List<? extends Node> argNodes);
+
+  /**
+   * Notification that a node was inlined, after {@link #shouldInline} returned true.
+   *
+   * @param inliner the inliner that created the node
+   * @param node the inlined node
+   */
+  default void inlined(final Inliner inliner, final Node node) {}
+}
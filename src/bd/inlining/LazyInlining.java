@@ -0,0 +1,78 @@
+package bd.inlining;
+
+import java.util.List;
+
+import com.oracle.truffle.api.CompilerDirectives.TruffleBoundary;
+import com.oracle.truffle.api.nodes.Node;
+import com.oracle.truffle.api.source.SourceSection;
+
+import bd.basic.ProgramDefinitionError;
+
+
+/**
+ * Defers the creation of an inlined node until it is first needed, typically on the first
+ * execution of a placeholder node.
+ *
+ * <p>Since the placeholder needs to be a node of the language, this class only keeps the
+ * state needed for inlining, i.e., the {@link Inliner}, the argument nodes, a snapshot of the
+ * {@link ScopeBuilder}, and the source section. On its first execution, the placeholder
+ * replaces itself with the result of {@link #inline()}.
+ *
+ * <p>The scope builder is used after parsing, when the scope of the placeholder was completed
+ * already. Thus, the snapshot taken with {@link ScopeBuilder#snapshot()} when the inlining was
+ * deferred is used, which adds the variables of the inlined node, for instance for
+ * {@link Inline#introduceTemps()}, to the scope of the placeholder.
+ *
+ * <p>An {@link InliningPolicy} is consulted when the inlining is deferred, see
+ * {@link InlinableNodes#inlineLazily(Object, List, ScopeBuilder, SourceSection,
+ * InliningPolicy, java.util.function.Function)}, since a policy typically belongs to the
+ * method that is parsed.
+ *
+ * @param <N> the type of the inlined node
+ */
+public final class LazyInlining<N extends Node> {
+
+  private final Inliner inliner;
+  private final List<N> argNodes;
+
+  @SuppressWarnings("rawtypes") private final ScopeBuilder scopeBuilder;
+
+  private final SourceSection source;
+
+  private N inlined;
+
+  @SuppressWarnings("rawtypes")
+  LazyInlining(final Inliner inliner, final List<N> argNodes,
+      final ScopeBuilder scopeBuilder, final SourceSection source) {
+    this.inliner = inliner;
+    this.argNodes = argNodes;
+    this.scopeBuilder = scopeBuilder;
+    this.source = source;
+  }
+
+  /** The original argument nodes, for instance to be adopted by the placeholder node. */
+  public List<N> getArgNodes() {
+    return argNodes;
+  }
+
+  /** Whether {@link #inline()} was already done. */
+  public synchronized boolean isInlined() {
+    return inlined != null;
+  }
+
+  /**
+   * Create the inlined node. The node is created only once, even if the placeholder is
+   * executed by multiple threads, and later calls return the same node.
+   *
+   * @return the inlined node
+   * @throws ProgramDefinitionError in case inlining would violate language constraints
+   */
+  @TruffleBoundary
+  public synchronized N inline() throws ProgramDefinitionError {
+    if (inlined == null) {
+      inlined = inliner.inline(argNodes, scopeBuilder, source);
+      assert inlined != null : "The inliner matched the argument nodes when it was deferred";
+    }
+    return inlined;
+  }
+}
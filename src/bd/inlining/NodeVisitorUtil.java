@@ -1,7 +1,10 @@
 package bd.inlining;
 
+import java.util.ArrayList;
+
 import com.oracle.truffle.api.TruffleLanguage;
 import com.oracle.truffle.api.nodes.Node;
+import com.oracle.truffle.api.nodes.NodeUtil;
 import com.oracle.truffle.api.nodes.NodeVisitor;
 
 import bd.basic.nodes.DummyParent;
@@ -9,15 +12,52 @@ import bd.basic.nodes.DummyParent;
 
 final class NodeVisitorUtil {
 
+  /**
+   * Apply the visitor to all nodes of the tree in pre-order, like {@link Node#accept}, but
+   * with an explicit work list instead of recursion, so that deep trees do not exhaust the
+   * stack. If the visitor returns false for a node, its children are skipped.
+   *
+   * <p>The tree is adopted by a {@link DummyParent}, so that the root can be replaced, and
+   * nodes have a root node, for instance for instrumentation.
+   *
+   * @param body the root of the tree
+   * @param visitor the visitor to apply
+   * @param language the language of the tree
+   * @return the root of the tree, which could have been replaced
+   */
   @SuppressWarnings("unchecked")
   public static <ExprT extends Node> ExprT applyVisitor(final ExprT body,
       final NodeVisitor visitor, final TruffleLanguage<?> language) {
     DummyParent dummyParent = new DummyParent(language, body);
 
-    body.accept(visitor);
+    ArrayList<Node> workList = new ArrayList<>();
+    NodeVisitor addChild = workList::add;
+    workList.add(body);
+
+    while (!workList.isEmpty()) {
+      Node node = workList.remove(workList.size() - 1);
+      if (visitor.visit(node)) {
+        int first = workList.size();
+        NodeUtil.forEachChild(node, addChild);
+        reverse(workList, first);
+      }
+    }
 
     // need to return the child of the dummy parent,
     // since it could have been replaced
     return (ExprT) dummyParent.child;
   }
+
+  /** Reverse the nodes from index {@code first} on, so that they are taken in order. */
+  private static void reverse(final ArrayList<Node> nodes, final int first) {
+    int i = first;
+    int j = nodes.size() - 1;
+    while (i < j) {
+      Node n = nodes.get(i);
+      nodes.set(i, nodes.get(j));
+      nodes.set(j, n);
+      i += 1;
+      j -= 1;
+    }
+  }
 }
@@ -1,5 +1,7 @@
 package bd.inlining;
 
+import java.util.IdentityHashMap;
+
 import com.oracle.truffle.api.TruffleLanguage;
 import com.oracle.truffle.api.nodes.Node;
 import com.oracle.truffle.api.nodes.NodeUtil;
@@ -24,9 +26,24 @@ public final class ScopeAdaptationVisitor implements NodeVisitor {
    */
   public final int contextLevel;
 
+  /**
+   * The variables of the scope chain by identity, indexed on first use by
+   * {@link #getAdaptedVar}.
+   */
+  private IdentityHashMap<Variable<?>, ScopeElement<?>> index;
+
+  /** The results of {@link #getAdaptedVar}, by the identity of the looked up variable. */
+  private IdentityHashMap<Variable<?>, ScopeElement<?>> adapted;
+
   /**
    * Use the visitor to adapt a copy of the given {@code body} to the current scope.
    *
+   * <p>The copy is made with {@link NodeUtil#cloneNode(Node)}, adopted by a
+   * {@link bd.basic.nodes.DummyParent}, and then adapted in a separate traversal, which uses
+   * a work list instead of recursion. Copying and adapting are not done in a single pass,
+   * since the child fields of nodes can only be set generically by Truffle itself. Only the
+   * {@link ScopeReference} nodes that refer to a changed variable are replaced.
+   *
    * @param <N> the type of the returned node
    *
    * @param body an AST that needs to be adapted
@@ -89,31 +106,90 @@ public final class ScopeAdaptationVisitor implements NodeVisitor {
     }
   }
 
-  @SuppressWarnings("unchecked")
-  private <N extends Node> ScopeElement<N> getSplitVar(final Variable<N> var,
-      final Scope<?, ?> scope, final int lvl) {
-    for (Variable<? extends Node> v : scope.getVariables()) {
-      if (v.equals(var)) {
-        return new ScopeElement<>((Variable<N>) v, lvl);
+  /**
+   * Index all variables of the scope chain by identity, so that the lookup of a variable
+   * that is still part of the scope is a single hash lookup. If a variable is defined at
+   * multiple levels, the innermost one is used, as for a lookup along the scope chain.
+   */
+  private IdentityHashMap<Variable<?>, ScopeElement<?>> indexVariables() {
+    IdentityHashMap<Variable<?>, ScopeElement<?>> index = new IdentityHashMap<>();
+    Scope<?, ?> current = scope;
+    int lvl = 0;
+    while (current != null) {
+      for (Variable<? extends Node> v : current.getVariables()) {
+        index.putIfAbsent(v, new ScopeElement<>(v, lvl));
       }
+      current = current.getOuterScopeOrNull();
+      lvl += 1;
     }
+    return index;
+  }
 
-    Scope<?, ?> outer = scope.getOuterScopeOrNull();
-    if (outer == null) {
-      throw new IllegalStateException("Couldn't find var: " + var.toString());
-    } else {
-      return getSplitVar(var, outer, lvl + 1);
+  /**
+   * Find the innermost variable of the scope chain that is {@link Variable#equals(Object)}
+   * to the given one, for instance a copy of a variable in a split scope.
+   *
+   * @param var the variable to look for
+   * @param maxLevel the context level at which the search stops, exclusive
+   * @return the variable and its context level, or null if none was found
+   */
+  @SuppressWarnings("unchecked")
+  private <N extends Node> ScopeElement<N> findEqualVar(final Variable<N> var,
+      final int maxLevel) {
+    Scope<?, ?> current = scope;
+    int lvl = 0;
+    while (current != null && lvl < maxLevel) {
+      for (Variable<? extends Node> v : current.getVariables()) {
+        if (v.equals(var)) {
+          return new ScopeElement<>((Variable<N>) v, lvl);
+        }
+      }
+      current = current.getOuterScopeOrNull();
+      lvl += 1;
     }
+    return null;
   }
 
   /**
    * Get the variable adapted to the current scope.
    *
+   * <p>As for a lookup along the scope chain, the innermost variable that is
+   * {@link Variable#equals(Object)} to the given one is used. The variables of the scope
+   * chain are indexed by identity on first use. If the variable itself is found in an outer
+   * scope, the inner scopes are still searched for an equal copy. A variable that is not
+   * part of the scope chain itself, for instance the original of a copied variable, is looked
+   * up with {@link Variable#equals(Object)}. The results are remembered, and shared by all
+   * lookups of the visitor.
+   *
    * @param var in the un-adapted node
    * @return the adapted version of the variable
    */
+  @SuppressWarnings("unchecked")
   public <N extends Node> ScopeElement<N> getAdaptedVar(final Variable<N> var) {
-    return getSplitVar(var, scope, 0);
+    if (index == null) {
+      index = indexVariables();
+      adapted = new IdentityHashMap<>();
+    }
+
+    ScopeElement<N> se = (ScopeElement<N>) adapted.get(var);
+    if (se != null) {
+      return se;
+    }
+
+    se = (ScopeElement<N>) index.get(var);
+    if (se == null) {
+      se = findEqualVar(var, Integer.MAX_VALUE);
+      if (se == null) {
+        throw new IllegalStateException("Couldn't find var: " + var.toString());
+      }
+    } else if (se.contextLevel > 0) {
+      ScopeElement<N> inner = findEqualVar(var, se.contextLevel);
+      if (inner != null) {
+        se = inner;
+      }
+    }
+    adapted.put(var, se);
+    return se;
   }
 
   /**
@@ -33,4 +33,19 @@ public interface ScopeBuilder<This extends ScopeBuilder<This>> {
    */
   Variable<?> introduceTempForInlinedVersion(Inlinable<This> node, SourceSection source)
       throws ProgramDefinitionError;
+
+  /**
+   * Capture the state of the builder at the current point of parsing, so that inlining can be
+   * deferred, see {@link LazyInlining}.
+   *
+   * <p>The returned builder is used after the parser moved on, possibly after the current
+   * scope was completed. Thus, it needs to add variables and temporaries to the scope that is
+   * current now, and not to the scope the parser is in when the node is eventually inlined.
+   *
+   * <p>A builder that represents a single scope, which does not change while parsing, can
+   * return itself.
+   *
+   * @return a builder for the current scope
+   */
+  This snapshot();
 }
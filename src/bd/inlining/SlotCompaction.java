@@ -0,0 +1,247 @@
+package bd.inlining;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.PriorityQueue;
+
+import com.oracle.truffle.api.nodes.Node;
+import com.oracle.truffle.api.nodes.NodeUtil;
+import com.oracle.truffle.api.nodes.NodeVisitor;
+
+import bd.inlining.nodes.Repeating;
+import bd.inlining.nodes.VariableAccess;
+
+
+/**
+ * Reduces the number of variables of a method after inlining, by letting variables whose
+ * lifetimes do not overlap share the frame slot of one of them.
+ *
+ * <p>Inlined blocks add their variables to the method, and with them frame slots, even though
+ * they are typically only used during the execution of the inlined block. For instance, the
+ * variables of sequential inlined loops are never live at the same time.
+ *
+ * <p>The lifetime of a variable is approximated by the range of the method's nodes, in
+ * pre-order, from its first to its last access. If an access is within a {@link Repeating}
+ * node, the lifetime includes the whole node, since the variable can be live from one
+ * iteration to the next. Variables whose lifetimes do not overlap are merged, i.e., all
+ * accesses are rewritten to access the variable that represents the group, using
+ * {@link Variable#getReadNode(int, com.oracle.truffle.api.source.SourceSection)} and
+ * {@link Variable#getWriteNode(int, Node, com.oracle.truffle.api.source.SourceSection)}.
+ *
+ * <p>The analysis relies on the following properties, which the language needs to ensure:
+ * <ul>
+ * <li>all accesses to the candidate variables are nodes of the method's AST that implement
+ * {@link VariableAccess},
+ * <li>the candidates are not accessed from other methods or closures, and
+ * <li>a variable of an inlined block is initialized whenever the block is entered, so that
+ * it does not observe the value of another variable in the same slot.
+ * </ul>
+ * Candidates that are accessed with a context level other than 0 are not merged.
+ */
+public final class SlotCompaction {
+
+  private SlotCompaction() {}
+
+  /** An access to a candidate variable. */
+  private static final class Access {
+    private final VariableAccess node;
+    private final int            position;
+    private final LoopSpan       loop;
+
+    Access(final VariableAccess node, final int position, final LoopSpan loop) {
+      this.node = node;
+      this.position = position;
+      this.loop = loop;
+    }
+
+    int getStart() {
+      return loop == null ? position : loop.start;
+    }
+
+    int getEnd() {
+      return loop == null ? position : loop.end;
+    }
+  }
+
+  /** The range of positions of a {@link Repeating} node. */
+  private static final class LoopSpan {
+    private final int start;
+    private int       end;
+
+    LoopSpan(final int start) {
+      this.start = start;
+    }
+  }
+
+  /** The lifetime of a variable. */
+  private static final class Lifetime {
+    private final Variable<?> var;
+    private final int         start;
+    private final int         end;
+
+    Lifetime(final Variable<?> var, final int start, final int end) {
+      this.var = var;
+      this.start = start;
+      this.end = end;
+    }
+  }
+
+  /** The variable that represents a group of merged variables, and the end of its use. */
+  private static final class Slot {
+    private final Variable<?> representative;
+    private int               end;
+
+    Slot(final Variable<?> representative, final int end) {
+      this.representative = representative;
+      this.end = end;
+    }
+  }
+
+  /**
+   * Merge the candidate variables whose lifetimes do not overlap, and rewrite their accesses.
+   *
+   * @param body the body of the method, after inlining
+   * @param candidates the variables that may share a frame slot, typically the variables of
+   *          inlined blocks, which are not captured by closures
+   * @return a map from each merged variable to the variable that represents it now. The
+   *         language does not need frame slots for the merged variables
+   */
+  public static Map<Variable<?>, Variable<?>> compact(final Node body,
+      final Collection<? extends Variable<?>> candidates) {
+    // make sure that all nodes have a parent, so that they can be replaced
+    body.adoptChildren();
+
+    LinkedHashMap<Variable<?>, List<Access>> accesses =
+        collectAccesses(body, new HashSet<>(candidates));
+
+    List<Lifetime> lifetimes = new ArrayList<>(accesses.size());
+    for (Entry<Variable<?>, List<Access>> e : accesses.entrySet()) {
+      int start = Integer.MAX_VALUE;
+      int end = -1;
+      for (Access a : e.getValue()) {
+        start = Math.min(start, a.getStart());
+        end = Math.max(end, a.getEnd());
+      }
+      lifetimes.add(new Lifetime(e.getKey(), start, end));
+    }
+
+    Map<Variable<?>, Variable<?>> merged = assignSlots(lifetimes);
+
+    for (Entry<Variable<?>, Variable<?>> e : merged.entrySet()) {
+      for (Access a : accesses.get(e.getKey())) {
+        rewrite(a.node, e.getValue());
+      }
+    }
+    return merged;
+  }
+
+  /**
+   * Collect the accesses of the candidate variables in pre-order. Candidates accessed with a
+   * context level other than 0 are removed.
+   */
+  private static LinkedHashMap<Variable<?>, List<Access>> collectAccesses(final Node body,
+      final HashSet<Variable<?>> candidates) {
+    LinkedHashMap<Variable<?>, List<Access>> accesses = new LinkedHashMap<>();
+    HashSet<Variable<?>> excluded = new HashSet<>();
+
+    // a null entry marks the end of a Repeating node
+    List<Node> workList = new ArrayList<>();
+    NodeVisitor addChild = workList::add;
+    List<LoopSpan> loops = new ArrayList<>();
+
+    workList.add(body);
+    int position = 0;
+
+    while (!workList.isEmpty()) {
+      Node node = workList.remove(workList.size() - 1);
+      if (node == null) {
+        LoopSpan loop = loops.remove(loops.size() - 1);
+        loop.end = position - 1;
+        continue;
+      }
+
+      if (node instanceof VariableAccess) {
+        VariableAccess access = (VariableAccess) node;
+        Variable<?> var = access.getVariable();
+        if (candidates.contains(var)) {
+          if (access.getContextLevel() != 0) {
+            excluded.add(var);
+          } else {
+            LoopSpan outermost = loops.isEmpty() ? null : loops.get(0);
+            accesses.computeIfAbsent(var, k -> new ArrayList<>())
+                    .add(new Access(access, position, outermost));
+          }
+        }
+      }
+
+      if (node instanceof Repeating) {
+        loops.add(new LoopSpan(position));
+        workList.add(null);
+      }
+
+      position += 1;
+      int first = workList.size();
+      NodeUtil.forEachChild(node, addChild);
+      reverse(workList, first);
+    }
+
+    for (Variable<?> var : excluded) {
+      accesses.remove(var);
+    }
+    return accesses;
+  }
+
+  /** Reverse the nodes from index {@code first} on, so that they are taken in order. */
+  private static void reverse(final List<Node> nodes, final int first) {
+    int i = first;
+    int j = nodes.size() - 1;
+    while (i < j) {
+      Node n = nodes.get(i);
+      nodes.set(i, nodes.get(j));
+      nodes.set(j, n);
+      i += 1;
+      j -= 1;
+    }
+  }
+
+  /**
+   * Assign the variables to slots, in the order of the start of their lifetimes, reusing the
+   * slot that became free first.
+   */
+  private static Map<Variable<?>, Variable<?>> assignSlots(final List<Lifetime> lifetimes) {
+    lifetimes.sort((a, b) -> Integer.compare(a.start, b.start));
+
+    PriorityQueue<Slot> slots = new PriorityQueue<>((a, b) -> Integer.compare(a.end, b.end));
+    Map<Variable<?>, Variable<?>> merged = new HashMap<>();
+
+    for (Lifetime l : lifetimes) {
+      Slot free = slots.peek();
+      if (free != null && free.end < l.start) {
+        slots.poll();
+        merged.put(l.var, free.representative);
+        free.end = l.end;
+        slots.add(free);
+      } else {
+        slots.add(new Slot(l.var, l.end));
+      }
+    }
+    return merged;
+  }
+
+  @SuppressWarnings({"unchecked", "rawtypes"})
+  private static void rewrite(final VariableAccess access, final Variable representative) {
+    Node node = (Node) access;
+    Node value = access.getWrittenValue();
+    if (value == null) {
+      node.replace(representative.getReadNode(0, node.getSourceSection()));
+    } else {
+      node.replace(representative.getWriteNode(0, value, node.getSourceSection()));
+    }
+  }
+}
@@ -0,0 +1,254 @@
+package bd.inlining;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map.Entry;
+import java.util.Objects;
+import java.util.function.Supplier;
+
+import com.oracle.truffle.api.nodes.Node;
+import com.oracle.truffle.api.nodes.NodeUtil;
+
+
+/**
+ * A cache for split copies of methods, for instance created with
+ * {@link ScopeAdaptationVisitor#adapt}, which bounds the total number of nodes of all cached
+ * splits.
+ *
+ * <p>Splits are identified by the method and a language-specific context, for instance the
+ * caller or a type profile of the arguments. When an equivalent split is requested, i.e., one
+ * for the same method and an equal context, the cached split is reused.
+ *
+ * <p>If adding a split exceeds the node budget, the least recently used splits are evicted
+ * from the cache. Evicted splits remain valid, but are not reused anymore. A split that
+ * alone exceeds the budget is not cached, and the language should use the generic version.
+ * The cache remembers such splits, and does not create them again. Each of them counts as one
+ * node against the budget, and is evicted like a split. With a size estimate, see
+ * {@link #getOrCreate(Object, Object, int, Supplier)}, a split that is too large is not even
+ * created the first time.
+ *
+ * <p>The cache is thread-safe. Splits are created outside of the lock, and if two threads
+ * create the same split, the one created first is used by both. If the method is invalidated
+ * while a split of it is created, the split is not used.
+ *
+ * @param <MethodT> the type of the run-time element representing a method
+ * @param <N> the type of the split nodes
+ */
+public final class SplitCache<MethodT, N extends Node> {
+
+  /** The maximal number of nodes of all cached splits. */
+  private final int nodeBudget;
+
+  /**
+   * The splits in the order of their last use. A split without node marks a split that
+   * exceeds the budget alone, and is thus not created again.
+   */
+  private final LinkedHashMap<Key, Split<N>> splits;
+
+  /** The splits that are being created, to discard them if their method is invalidated. */
+  private final ArrayList<Creation> pending;
+
+  /** The number of nodes of all cached splits, and of the rejected splits. */
+  private int nodeCount;
+
+  /** The number of rejected splits in {@link #splits}. */
+  private int rejected;
+
+  private int evictions;
+
+  /**
+   * Create a cache.
+   *
+   * @param nodeBudget the maximal number of nodes of all cached splits
+   */
+  public SplitCache(final int nodeBudget) {
+    if (nodeBudget <= 0) {
+      throw new IllegalArgumentException("The node budget needs to be positive");
+    }
+    this.nodeBudget = nodeBudget;
+    this.splits = new LinkedHashMap<>(16, 0.75f, true);
+    this.pending = new ArrayList<>();
+  }
+
+  /**
+   * Get the split for the method and context, or create it if it is not cached.
+   *
+   * @param method the method that is split
+   * @param context the language-specific context of the split, for instance the caller or
+   *          a type profile, or null if the split does not depend on a context
+   * @param createSplit creates the split, for instance with {@link ScopeAdaptationVisitor}
+   * @return the split, or null if the split alone exceeds the node budget, or the method was
+   *         invalidated while the split was created
+   */
+  public N getOrCreate(final MethodT method, final Object context,
+      final Supplier<N> createSplit) {
+    return getOrCreate(method, context, 0, createSplit);
+  }
+
+  /**
+   * Get the split for the method and context, or create it if it is not cached and the
+   * estimated size is within the node budget.
+   *
+   * @param method the method that is split
+   * @param context the language-specific context of the split, for instance the caller or
+   *          a type profile, or null if the split does not depend on a context
+   * @param estimatedSize the expected number of nodes of the split, for instance the number
+   *          of nodes of the method, or 0 if unknown
+   * @param createSplit creates the split, for instance with {@link ScopeAdaptationVisitor}
+   * @return the split, or null if the split alone exceeds the node budget, or the method was
+   *         invalidated while the split was created
+   */
+  public N getOrCreate(final MethodT method, final Object context, final int estimatedSize,
+      final Supplier<N> createSplit) {
+    Key key = new Key(method, context);
+    Creation creation = new Creation(key);
+    synchronized (this) {
+      Split<N> split = splits.get(key);
+      if (split != null) {
+        return split.node;
+      }
+      if (estimatedSize > nodeBudget) {
+        put(key, new Split<>(null, 1));
+        return null;
+      }
+      pending.add(creation);
+    }
+
+    N node;
+    try {
+      node = createSplit.get();
+    } catch (RuntimeException | Error e) {
+      synchronized (this) {
+        pending.remove(creation);
+      }
+      throw e;
+    }
+    int size = NodeUtil.countNodes(node);
+
+    synchronized (this) {
+      pending.remove(creation);
+      if (creation.invalidated) {
+        return null;
+      }
+
+      Split<N> existing = splits.get(key);
+      if (existing != null) {
+        return existing.node;
+      }
+
+      if (size > nodeBudget) {
+        put(key, new Split<>(null, 1));
+        return null;
+      }
+      put(key, new Split<>(node, size));
+      return node;
+    }
+  }
+
+  private void put(final Key key, final Split<N> split) {
+    splits.put(key, split);
+    nodeCount += split.size;
+    if (split.node == null) {
+      rejected += 1;
+    }
+    evict();
+  }
+
+  private void remove(final Split<N> split) {
+    nodeCount -= split.size;
+    if (split.node == null) {
+      rejected -= 1;
+    }
+  }
+
+  private void evict() {
+    Iterator<Entry<Key, Split<N>>> it = splits.entrySet().iterator();
+    while (nodeCount > nodeBudget) {
+      Split<N> eldest = it.next().getValue();
+      it.remove();
+      remove(eldest);
+      evictions += 1;
+    }
+  }
+
+  /**
+   * Remove all splits of the given method, for instance after it was redefined. Splits of the
+   * method that exceeded the budget may be created again afterwards.
+   */
+  public synchronized void invalidate(final MethodT method) {
+    for (Creation c : pending) {
+      if (c.key.method.equals(method)) {
+        c.invalidated = true;
+      }
+    }
+
+    Iterator<Entry<Key, Split<N>>> it = splits.entrySet().iterator();
+    while (it.hasNext()) {
+      Entry<Key, Split<N>> e = it.next();
+      if (e.getKey().method.equals(method)) {
+        remove(e.getValue());
+        it.remove();
+      }
+    }
+  }
+
+  /** The number of cached splits, not including the rejected ones. */
+  public synchronized int size() {
+    return splits.size() - rejected;
+  }
+
+  /** The number of nodes of all cached splits, with one for each rejected split. */
+  public synchronized int getNodeCount() {
+    return nodeCount;
+  }
+
+  /** The number of splits that were evicted to stay within the budget. */
+  public synchronized int getEvictions() {
+    return evictions;
+  }
+
+  private static final class Key {
+    private final Object method;
+    private final Object context;
+
+    Key(final Object method, final Object context) {
+      this.method = method;
+      this.context = context;
+    }
+
+    @Override
+    public boolean equals(final Object o) {
+      if (!(o instanceof Key)) {
+        return false;
+      }
+      Key k = (Key) o;
+      return method.equals(k.method) && Objects.equals(context, k.context);
+    }
+
+    @Override
+    public int hashCode() {
+      return 31 * method.hashCode() + Objects.hashCode(context);
+    }
+  }
+
+  /** A split that is being created. */
+  private static final class Creation {
+    private final Key key;
+    private boolean   invalidated;
+
+    Creation(final Key key) {
+      this.key = key;
+    }
+  }
+
+  private static final class Split<N> {
+    private final N   node;
+    private final int size;
+
+    Split(final N node, final int size) {
+      this.node = node;
+      this.size = size;
+    }
+  }
+}
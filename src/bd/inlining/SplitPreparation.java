@@ -0,0 +1,175 @@
+package bd.inlining;
+
+import java.util.concurrent.Executor;
+import java.util.function.Supplier;
+
+import com.oracle.truffle.api.Assumption;
+import com.oracle.truffle.api.CompilerAsserts;
+import com.oracle.truffle.api.Truffle;
+import com.oracle.truffle.api.nodes.Node;
+import com.oracle.truffle.api.nodes.NodeUtil;
+
+
+/**
+ * Prepares a split copy of a method on a background executor, while the caller keeps
+ * executing the generic version.
+ *
+ * <p>The split is published by invalidating the {@link #getNotReady()} assumption. Thus, a
+ * node can check for the split with {@link #getSplitOrNull()}, which is a constant null in
+ * compiled code as long as the split is not ready. Once the split is ready, the compiled code
+ * is invalidated, and the node can replace the generic version with the split in the
+ * interpreter with {@link #install(Node)}.
+ *
+ * <p>The split remains valid as long as the {@link #getValid()} assumption is. When the split
+ * becomes obsolete, for instance because the method was redefined, the language calls
+ * {@link #invalidate()}. Compiled code that uses the split needs to depend on the assumption,
+ * and an installed split needs to be replaced by the language, for instance with the new
+ * version of the method.
+ *
+ * <p>The split is created concurrently with the execution of the generic version. If the
+ * body to be split can be rewritten while it is copied, for instance because it is being
+ * specialized, {@code createSplit} needs to copy it within {@link Node#atomic(Runnable)}.
+ *
+ * <p>If creating the split fails, also with an {@link Error} such as a
+ * {@link StackOverflowError}, the assumption remains valid, and the generic version is used.
+ * The failure is available from {@link #getFailure()}.
+ *
+ * @param <N> the type of the split node
+ */
+public final class SplitPreparation<N extends Node> {
+
+  private final Assumption notReady;
+
+  private final Assumption valid;
+
+  private volatile N split;
+
+  private volatile Throwable failure;
+
+  private boolean installed;
+
+  private SplitPreparation(final String name) {
+    this.notReady = Truffle.getRuntime().createAssumption("Split not ready: " + name);
+    this.valid = Truffle.getRuntime().createAssumption("Split valid: " + name);
+  }
+
+  /**
+   * Start preparing a split.
+   *
+   * @param <N> the type of the split node
+   *
+   * @param name a name for the split, used for debugging
+   * @param executor the executor on which the split is created, for instance a thread pool,
+   *          or one that starts a virtual thread per task
+   * @param createSplit creates the split, for instance with {@link ScopeAdaptationVisitor}
+   * @return the preparation, which provides access to the split once it is ready
+   */
+  public static <N extends Node> SplitPreparation<N> prepare(final String name,
+      final Executor executor, final Supplier<N> createSplit) {
+    SplitPreparation<N> preparation = new SplitPreparation<>(name);
+    executor.execute(() -> preparation.create(createSplit));
+    return preparation;
+  }
+
+  private void create(final Supplier<N> createSplit) {
+    try {
+      N node = createSplit.get();
+      if (node == null) {
+        return;
+      }
+      split = node;
+      notReady.invalidate();
+    } catch (Throwable t) {
+      failure = t;
+    }
+  }
+
+  /**
+   * The assumption that the split is not ready yet. It is invalidated when the split is
+   * ready.
+   */
+  public Assumption getNotReady() {
+    return notReady;
+  }
+
+  /**
+   * The assumption that the split is valid. It is invalidated with {@link #invalidate()},
+   * for instance when the method is redefined.
+   */
+  public Assumption getValid() {
+    return valid;
+  }
+
+  /**
+   * Invalidate the split, for instance because the method was redefined. Afterwards, the
+   * split is not returned by {@link #getSplitOrNull()}, and not installed anymore.
+   */
+  public void invalidate() {
+    valid.invalidate();
+  }
+
+  /** Whether the split is ready. */
+  public boolean isReady() {
+    return !notReady.isValid();
+  }
+
+  /**
+   * Get the split if it is ready.
+   *
+   * @return the split, or null if it is not ready yet, could not be created, or is not valid
+   *         anymore
+   */
+  public N getSplitOrNull() {
+    if (notReady.isValid() || !valid.isValid()) {
+      return null;
+    }
+    return split;
+  }
+
+  /**
+   * Replace the generic version with the split, if the split is ready and valid. The
+   * replacement is done within {@link Node#atomic(java.util.concurrent.Callable)}, and only
+   * once, even if multiple threads execute the generic version and try to install the split
+   * concurrently. The generic version is only replaced if it is still a child of its parent,
+   * i.e., if it was not rewritten in the meantime.
+   *
+   * <p>This method is to be used in the interpreter only, for instance after
+   * {@link #getNotReady()} was found to be invalid.
+   *
+   * @param generic the node of the generic version, which is to be replaced
+   * @return the split, or null if it is not ready yet, could not be created, is not valid
+   *         anymore, or the generic version is not part of the tree anymore
+   */
+  public N install(final Node generic) {
+    CompilerAsserts.neverPartOfCompilation("SplitPreparation.install");
+    N node = getSplitOrNull();
+    if (node == null) {
+      return null;
+    }
+
+    boolean inTree = generic.atomic(() -> {
+      if (!installed) {
+        if (!valid.isValid() || !isChild(generic)) {
+          return false;
+        }
+        installed = true;
+        generic.replace(node);
+      }
+      return true;
+    });
+    return inTree ? node : null;
+  }
+
+  private static boolean isChild(final Node node) {
+    Node parent = node.getParent();
+    return parent != null && !NodeUtil.forEachChild(parent, child -> child != node);
+  }
+
+  /**
+   * The exception thrown when creating the split, or null if it was created successfully or
+   * is not ready yet.
+   */
+  public Throwable getFailure() {
+    return failure;
+  }
+}
@@ -21,6 +21,10 @@ import com.oracle.truffle.api.source.SourceSection;
  * assume that scopes are defined lexically, and a context level of 0 means the local scope,
  * and every increment represents one step outwards in a scope chain.
  *
+ * <p>When a scope is adapted, the {@link ScopeAdaptationVisitor} uses the innermost variable
+ * of the scope chain that is {@link #equals(Object)} to the adapted one, for instance a copy
+ * of it in a split scope. {@link #hashCode()} is not used.
+ *
  * @param <N> the type of nodes expected to be returned for reading variables
  */
 public interface Variable<N extends Node> {
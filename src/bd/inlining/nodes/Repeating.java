@@ -0,0 +1,13 @@
+package bd.inlining.nodes;
+
+import com.oracle.truffle.api.nodes.NodeInterface;
+
+
+/**
+ * Nodes that execute their children repeatedly, for instance inlined loops, implement this
+ * interface.
+ *
+ * <p>A variable that is accessed within such a node can be live during the whole execution of
+ * the node, because a value written in one iteration can be read in the next one.
+ */
+public interface Repeating extends NodeInterface {}
@@ -0,0 +1,37 @@
+package bd.inlining.nodes;
+
+import com.oracle.truffle.api.nodes.Node;
+import com.oracle.truffle.api.nodes.NodeInterface;
+
+import bd.inlining.SlotCompaction;
+import bd.inlining.Variable;
+
+
+/**
+ * Nodes that read or write a {@link Variable} implement this interface, so that passes such as
+ * {@link SlotCompaction} can determine which variables are accessed where, and rewrite the
+ * accesses with the factory methods of {@link Variable}.
+ */
+public interface VariableAccess extends NodeInterface {
+
+  /**
+   * The accessed variable.
+   *
+   * @return the variable
+   */
+  Variable<?> getVariable();
+
+  /**
+   * The context level of the access, see {@link Variable}.
+   *
+   * @return the context level, 0 for a variable of the local scope
+   */
+  int getContextLevel();
+
+  /**
+   * The expression that determines the value to be written.
+   *
+   * @return the expression for a write, or {@code null} for a read
+   */
+  Node getWrittenValue();
+}
@@ -0,0 +1,356 @@
+package bd.inlining.processor;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.element.AnnotationMirror;
+import javax.lang.model.element.AnnotationValue;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.tools.Diagnostic.Kind;
+
+import bd.basic.processor.BaseProcessor;
+
+
+/**
+ * Annotation processor that reads the @{@link bd.inlining.Inline} annotations at compile time
+ * and generates a {@link bd.inlining.InlinerRegistry} for each package that contains
+ * inlinable nodes.
+ *
+ * <p>The generated class is named {@value #REGISTRY_NAME}. It contains one
+ * {@link bd.inlining.Inliner} per annotation, which has the argument layout as constants and
+ * instantiates the node either with its constructor, or with the factory generated by the
+ * Truffle DSL.
+ */
+@SupportedAnnotationTypes({InlineProcessor.INLINE, InlineProcessor.CONTAINER})
+public final class InlineProcessor extends BaseProcessor {
+
+  static final String INLINE    = "bd.inlining.Inline";
+  static final String CONTAINER = "bd.inlining.Inline.Container";
+
+  private static final String NODE_CHILD    = "com.oracle.truffle.api.dsl.NodeChild";
+  private static final String NODE_CHILDREN = "com.oracle.truffle.api.dsl.NodeChildren";
+
+  public static final String REGISTRY_NAME = "GeneratedInliners";
+
+  /** Packages for which the registry was already generated. */
+  private final Set<String> generated = new HashSet<>();
+
+  @Override
+  public boolean process(final Set<? extends TypeElement> annotations,
+      final RoundEnvironment roundEnv) {
+    Set<TypeElement> nodes = new LinkedHashSet<>();
+    for (TypeElement annotation : annotations) {
+      for (Element e : roundEnv.getElementsAnnotatedWith(annotation)) {
+        if (e instanceof TypeElement) {
+          nodes.add((TypeElement) e);
+        }
+      }
+    }
+
+    Map<String, Map<String, String>> inlinersByPackage = new LinkedHashMap<>();
+    for (TypeElement node : nodes) {
+      String pkg = getPackage(node);
+      if (generated.contains(pkg)) {
+        processingEnv.getMessager().printMessage(Kind.ERROR, REGISTRY_NAME + " for " + pkg
+            + " was already generated in an earlier processing round.", node);
+        continue;
+      }
+
+      Map<String, String> inliners =
+          inlinersByPackage.computeIfAbsent(pkg, k -> new LinkedHashMap<>());
+      int i = 0;
+      for (AnnotationMirror inline : getRepeatable(node, INLINE, CONTAINER,
+          new ArrayList<>())) {
+        String name = getFlatName(node) + "Inliner" + i;
+        String inliner = createInliner(node, inline, name);
+        if (inliner != null) {
+          inliners.put(name, inliner);
+        }
+        i += 1;
+      }
+    }
+
+    for (Entry<String, Map<String, String>> e : inlinersByPackage.entrySet()) {
+      generateRegistry(e.getKey(), e.getValue());
+    }
+    return false;
+  }
+
+  /**
+   * Create the source code of the inliner class for one annotation.
+   *
+   * @return the source code, or null if the node is not compatible with inlining
+   */
+  private String createInliner(final TypeElement node, final AnnotationMirror inline,
+      final String name) {
+    ExecutableElement ctor = getConstructor(node);
+    if (ctor == null) {
+      return null;
+    }
+
+    int[] inlineableArgIdx = getInts(inline, "inlineableArgIdx");
+    int[] introduceTemps = getInts(inline, "introduceTemps");
+
+    List<String> additionalArgs = new ArrayList<>();
+    for (AnnotationValue v : getList(getValue(inline, "additionalArgs"))) {
+      TypeMirror t = getType(v);
+      if (t != null && "bd.inlining.Inline.True".equals(getName(t))) {
+        additionalArgs.add("true");
+      } else {
+        additionalArgs.add("false");
+      }
+    }
+
+    boolean useFactory = hasAnnotation(node, GENERATE_NODE_FACTORY);
+
+    // with a factory, the first argument nodes are evaluated as children by the DSL,
+    // and are passed as last arguments to the factory method
+    int numChildren = useFactory ? getNumChildren(node) : 0;
+
+    List<? extends VariableElement> params = ctor.getParameters();
+    int numTemps = useFactory ? introduceTemps.length : 0;
+    int numArgNodes = params.size() - inlineableArgIdx.length - numTemps
+        - additionalArgs.size();
+
+    if (numArgNodes < 0) {
+      processingEnv.getMessager().printMessage(Kind.WARNING,
+          "The constructor does not have enough parameters for the @Inline annotation. "
+              + "The node is not included in " + REGISTRY_NAME + ".",
+          node, inline);
+      return null;
+    }
+
+    List<String> args = new ArrayList<>();
+    for (int i = 0; i < numArgNodes; i += 1) {
+      args.add(cast(params, args.size(), "argNodes.get(" + (numChildren + i) + ")"));
+    }
+    for (int a : inlineableArgIdx) {
+      args.add(cast(params, args.size(),
+          "((bd.inlining.nodes.Inlinable) argNodes.get(" + a + ")).inline(scopeBuilder)"));
+    }
+    for (int i = 0; i < numTemps; i += 1) {
+      args.add(cast(params, args.size(),
+          "scopeBuilder.introduceTempForInlinedVersion((bd.inlining.nodes.Inlinable) "
+              + "argNodes.get(" + introduceTemps[i] + "), source)"));
+    }
+    args.addAll(additionalArgs);
+
+    String creation;
+    if (useFactory) {
+      List<String> childTypes = getChildTypes(node);
+      if (childTypes == null) {
+        for (int i = 0; i < numChildren; i += 1) {
+          args.add("argNodes.get(" + i + ")");
+        }
+        creation = getFactoryName(node) + ".getInstance().createNode(" + join(args) + ")";
+      } else {
+        for (int i = 0; i < numChildren; i += 1) {
+          args.add("(" + childTypes.get(i) + ") argNodes.get(" + i + ")");
+        }
+        creation = getFactoryName(node) + ".create(" + join(args) + ")";
+      }
+    } else {
+      creation = "new " + node.getQualifiedName() + "(" + join(args) + ")";
+    }
+
+    StringBuilder b = new StringBuilder();
+    b.append("  private static final class ").append(name)
+     .append(" extends bd.inlining.Inliner {\n");
+    b.append("    ").append(name).append("() {\n");
+    b.append("      super(").append(getLiteral(inline, "selector")).append(", ")
+     .append(toArray("int", inlineableArgIdx)).append(", ")
+     .append(toArray("int", introduceTemps)).append(", ")
+     .append("new Object[] {").append(join(additionalArgs)).append("}, ")
+     .append(getValue(inline, "disabled").getValue()).append(", ")
+     .append(getValue(inline, "foldIfTrueArgIdx").getValue()).append(", ")
+     .append(getValue(inline, "foldIfFalseArgIdx").getValue()).append(");\n");
+    b.append("    }\n\n");
+    b.append("    @Override\n");
+    b.append("    public <N extends com.oracle.truffle.api.nodes.Node> N create(\n");
+    b.append("        final java.util.List<N> argNodes, "
+        + "final bd.inlining.ScopeBuilder scopeBuilder,\n");
+    b.append("        final com.oracle.truffle.api.source.SourceSection source)\n");
+    b.append("        throws bd.basic.ProgramDefinitionError {\n");
+    b.append("      N node = (N) ").append(creation).append(";\n");
+    b.append("      ((bd.inlining.nodes.WithSource) node).initialize(source);\n");
+    b.append("      return node;\n");
+    b.append("    }\n");
+    b.append("  }\n");
+    return b.toString();
+  }
+
+  /**
+   * Get the only public constructor of the node, like {@link bd.inlining.InlinableNodes} does
+   * reflectively. Constructors that are not public are ignored.
+   *
+   * @return the constructor, or null if there is not exactly one public constructor, in which
+   *         case the node is not included in the registry, and can only be registered
+   *         reflectively
+   */
+  private ExecutableElement getConstructor(final TypeElement node) {
+    ExecutableElement ctor = null;
+    for (Element e : node.getEnclosedElements()) {
+      if (e.getKind() == ElementKind.CONSTRUCTOR
+          && e.getModifiers().contains(Modifier.PUBLIC)) {
+        if (ctor != null) {
+          processingEnv.getMessager().printMessage(Kind.WARNING,
+              "We expect nodes marked with Inline to have only one public constructor. "
+                  + "The node is not included in " + REGISTRY_NAME
+                  + ", but can still be registered reflectively with InlinableNodes.",
+              node);
+          return null;
+        }
+        ctor = (ExecutableElement) e;
+      }
+    }
+
+    if (ctor == null) {
+      processingEnv.getMessager().printMessage(Kind.WARNING,
+          "The node does not have a public constructor. "
+              + "The node is not included in " + REGISTRY_NAME + ".",
+          node);
+    }
+    return ctor;
+  }
+
+  private List<AnnotationMirror> getNodeChildren(final TypeElement node) {
+    return getRepeatable(node, NODE_CHILD, NODE_CHILDREN, new ArrayList<>());
+  }
+
+  private int getNumChildren(final TypeElement node) {
+    int num = getNodeChildren(node).size();
+    TypeMirror superType = node.getSuperclass();
+    if (superType.getKind() == TypeKind.DECLARED) {
+      num += getNumChildren((TypeElement) ((DeclaredType) superType).asElement());
+    }
+    return num;
+  }
+
+  /**
+   * Get the declared types of the children.
+   *
+   * @return the types, or null, if the types are not declared explicitly on the node class,
+   *         and need to be determined by the DSL
+   */
+  private List<String> getChildTypes(final TypeElement node) {
+    if (getNumChildren(node) != getNodeChildren(node).size()) {
+      return null;
+    }
+
+    List<String> types = new ArrayList<>();
+    for (AnnotationMirror child : getNodeChildren(node)) {
+      TypeMirror type = getType(getValue(child, "type"));
+      if (type == null) {
+        return null;
+      }
+      String name = getName(type);
+      if (NODE_CHILD.equals(name) || "com.oracle.truffle.api.nodes.Node".equals(name)) {
+        return null;
+      }
+      types.add(name);
+    }
+    return types;
+  }
+
+  private String cast(final List<? extends VariableElement> params, final int idx,
+      final String expr) {
+    return "(" + getName(params.get(idx).asType()) + ") " + expr;
+  }
+
+  private int[] getInts(final AnnotationMirror mirror, final String name) {
+    List<? extends AnnotationValue> values = getList(getValue(mirror, name));
+    int[] result = new int[values.size()];
+    for (int i = 0; i < result.length; i += 1) {
+      result[i] = (Integer) values.get(i).getValue();
+    }
+    return result;
+  }
+
+  private static String toArray(final String type, final int[] values) {
+    StringBuilder b = new StringBuilder("new ").append(type).append("[] {");
+    for (int i = 0; i < values.length; i += 1) {
+      if (i > 0) {
+        b.append(", ");
+      }
+      b.append(values[i]);
+    }
+    return b.append("}").toString();
+  }
+
+  private static String join(final List<String> values) {
+    return String.join(", ", values);
+  }
+
+  private static String getFlatName(final TypeElement node) {
+    Element enclosing = node.getEnclosingElement();
+    if (enclosing instanceof TypeElement) {
+      return getFlatName((TypeElement) enclosing) + "_" + node.getSimpleName();
+    }
+    return node.getSimpleName().toString();
+  }
+
+  private void generateRegistry(final String pkg, final Map<String, String> inliners) {
+    generated.add(pkg);
+    String name = pkg.isEmpty() ? REGISTRY_NAME : pkg + "." + REGISTRY_NAME;
+
+    try (PrintWriter w = new PrintWriter(
+        processingEnv.getFiler().createSourceFile(name).openWriter())) {
+      if (!pkg.isEmpty()) {
+        w.println("package " + pkg + ";");
+        w.println();
+      }
+      w.println("/**");
+      w.println(" * Registry of the inlinable nodes in this package.");
+      w.println(" * Generated by {@link " + InlineProcessor.class.getName() + "}.");
+      w.println(" */");
+      w.println("@SuppressWarnings({\"unchecked\", \"rawtypes\", \"cast\"})");
+      w.println("public final class " + REGISTRY_NAME
+          + " implements bd.inlining.InlinerRegistry {");
+      w.println();
+      w.println("  public static final " + REGISTRY_NAME + " INSTANCE = new "
+          + REGISTRY_NAME + "();");
+      w.println();
+      w.println("  private " + REGISTRY_NAME + "() { }");
+      w.println();
+      w.println("  @Override");
+      w.println("  public void addInliners(final java.util.List<bd.inlining.Inliner> list) {");
+      for (String className : inliners.keySet()) {
+        w.println("    list.add(new " + className + "());");
+      }
+      w.println("  }");
+      for (String inliner : inliners.values()) {
+        w.println();
+        w.print(inliner);
+      }
+      w.println("}");
+    } catch (IOException e) {
+      processingEnv.getMessager().printMessage(Kind.ERROR,
+          "Failed to generate " + name + ": " + e.getMessage());
+    }
+
+    List<String> classes = new ArrayList<>();
+    classes.add(name);
+    for (String inliner : inliners.keySet()) {
+      classes.add(name + "$" + inliner);
+    }
+    generateNativeImageProperties(name, classes);
+  }
+}
@@ -0,0 +1,94 @@
+package bd.nativeimage;
+
+import org.graalvm.nativeimage.hosted.Feature;
+import org.graalvm.nativeimage.hosted.RuntimeClassInitialization;
+import org.graalvm.nativeimage.hosted.RuntimeReflection;
+
+import com.oracle.truffle.api.dsl.NodeFactory;
+import com.oracle.truffle.api.nodes.Node;
+
+import bd.basic.IdMap;
+import bd.inlining.Inline;
+import bd.primitives.Primitive;
+import bd.primitives.Primitive.NoChild;
+import bd.settings.AllDisabled;
+import bd.settings.VmSettings;
+
+
+/**
+ * A GraalVM native-image {@link Feature} for Black Diamonds.
+ *
+ * <p>The feature initializes the settings, and the packages of the diamonds whose objects a
+ * language typically creates in a static initializer, except for their node packages, at
+ * image build time. Thus,
+ * {@link VmSettings} are determined when the image is built, and for instance a
+ * {@link bd.primitives.PrimitiveTable} or {@link bd.inlining.InlinableNodes} object can be
+ * stored in the image heap, and does not need to be created at startup. The generated
+ * registries are initialized at build time by the {@code native-image.properties} files that
+ * the annotation processors generate with them. Other classes, for instance nodes, are
+ * initialized as usual.
+ *
+ * <p>Furthermore, the feature registers the classes, constructors, and methods that are used
+ * reflectively when primitives and inlinable nodes are loaded from node factories and node
+ * classes instead of the generated registries.
+ *
+ * <p>The feature is enabled with the {@code native-image.properties} file included in
+ * {@code META-INF/native-image}.
+ */
+public final class BlackDiamondsFeature implements Feature {
+
+  /**
+   * The packages initialized at build time. They contain the registries and the objects
+   * created from them, but also classes that are not public.
+   */
+  private static final String[] BUILD_TIME_PACKAGES =
+      {"bd.primitives", "bd.inlining", "bd.sendsite"};
+
+  /** The subpackages with the node classes, which are initialized as usual. */
+  private static final String[] RUN_TIME_PACKAGES =
+      {"bd.primitives.nodes", "bd.inlining.nodes"};
+
+  @Override
+  public void afterRegistration(final AfterRegistrationAccess access) {
+    RuntimeClassInitialization.initializeAtBuildTime(
+        VmSettings.class, AllDisabled.class, IdMap.class);
+    RuntimeClassInitialization.initializeAtBuildTime(BUILD_TIME_PACKAGES);
+    RuntimeClassInitialization.initializeAtRunTime(RUN_TIME_PACKAGES);
+
+    String settingsClass = System.getProperty(VmSettings.SETTINGS_PROPERTY);
+    if (settingsClass != null) {
+      Class<?> settings = access.findClassByName(settingsClass);
+      if (settings != null) {
+        RuntimeClassInitialization.initializeAtBuildTime(settings);
+      }
+    }
+  }
+
+  @Override
+  public void beforeAnalysis(final BeforeAnalysisAccess access) {
+    access.registerSubtypeReachabilityHandler(
+        (a, nodeClass) -> registerNode(nodeClass), Node.class);
+  }
+
+  private static void registerNode(final Class<?> nodeClass) {
+    Primitive[] primitives = nodeClass.getAnnotationsByType(Primitive.class);
+    for (Primitive prim : primitives) {
+      RuntimeReflection.register(nodeClass);
+      try {
+        RuntimeReflection.register(
+            prim.specializer().getConstructor(Primitive.class, NodeFactory.class));
+        if (prim.extraChild() != NoChild.class) {
+          RuntimeReflection.register(prim.extraChild().getMethod("getInstance"));
+        }
+      } catch (NoSuchMethodException | SecurityException e) {
+        throw new RuntimeException(e);
+      }
+    }
+
+    Inline[] inlines = nodeClass.getAnnotationsByType(Inline.class);
+    if (inlines.length > 0) {
+      RuntimeReflection.register(nodeClass);
+      RuntimeReflection.register(nodeClass.getConstructors());
+    }
+  }
+}
@@ -0,0 +1,112 @@
+package bd.primitives;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.oracle.truffle.api.source.SourceSection;
+
+import bd.settings.VmSettings;
+import bd.source.FullSourceCoordinate;
+import bd.source.SourceCoordinate;
+
+
+/**
+ * Tracks how often eagerly specialized nodes were rewritten to a generic version, because
+ * they were used with arguments they do not support.
+ *
+ * <p>Once the number of rewrites at a source location, or for a selector, reaches the
+ * threshold, the location or selector is considered non-eager, i.e., it is not specialized
+ * eagerly anymore. This avoids that a node is rewritten back and forth, which would for
+ * instance lead to repeated deoptimization in megamorphic code.
+ *
+ * <p>Sites are identified by their {@link FullSourceCoordinate}, i.e., the URI of the source
+ * and the position in it. Thus, the tracker does not keep {@link SourceSection} and
+ * {@code Source} objects alive, and the sites of a reparsed source are still recognized.
+ *
+ * @param <Id> the type of the identifiers used for mapping to primitives, typically some form
+ *          of interned string construct
+ */
+final class EagerRewrites<Id> {
+  private final int siteThreshold;
+  private final int selectorThreshold;
+
+  private final ConcurrentHashMap<FullSourceCoordinate, AtomicInteger> siteRewrites;
+  private final ConcurrentHashMap<Id, AtomicInteger>                   selectorRewrites;
+
+  private final Set<FullSourceCoordinate> nonEagerSites;
+  private final Set<Id>                   nonEagerSelectors;
+
+  /**
+   * Create the tracker.
+   *
+   * @param siteThreshold rewrites after which a site is non-eager, or 0 to not track sites
+   * @param selectorThreshold rewrites after which a selector is non-eager, or 0 to not track
+   *          selectors
+   */
+  EagerRewrites(final int siteThreshold, final int selectorThreshold) {
+    this.siteThreshold = siteThreshold;
+    this.selectorThreshold = selectorThreshold;
+
+    this.siteRewrites = new ConcurrentHashMap<>();
+    this.selectorRewrites = new ConcurrentHashMap<>();
+    this.nonEagerSites = ConcurrentHashMap.newKeySet();
+    this.nonEagerSelectors = ConcurrentHashMap.newKeySet();
+  }
+
+  /**
+   * Create a tracker with the thresholds of the {@link VmSettings}.
+   *
+   * @return the tracker, or null if rewrites are not tracked
+   */
+  static <Id> EagerRewrites<Id> create() {
+    if (VmSettings.EAGER_REWRITE_SITE_THRESHOLD > 0
+        || VmSettings.EAGER_REWRITE_SELECTOR_THRESHOLD > 0) {
+      return new EagerRewrites<>(VmSettings.EAGER_REWRITE_SITE_THRESHOLD,
+          VmSettings.EAGER_REWRITE_SELECTOR_THRESHOLD);
+    }
+    return null;
+  }
+
+  /**
+   * Record a rewrite of an eagerly specialized node.
+   *
+   * @param selector the selector of the node
+   * @param source the source section of the node, or null if unknown
+   */
+  void recordRewrite(final Id selector, final SourceSection source) {
+    if (selectorThreshold > 0 && !nonEagerSelectors.contains(selector)) {
+      if (count(selectorRewrites, selector) >= selectorThreshold) {
+        nonEagerSelectors.add(selector);
+        selectorRewrites.remove(selector);
+      }
+    }
+
+    if (siteThreshold > 0 && source != null) {
+      FullSourceCoordinate site = SourceCoordinate.createFull(source);
+      if (!nonEagerSites.contains(site) && count(siteRewrites, site) >= siteThreshold) {
+        nonEagerSites.add(site);
+        siteRewrites.remove(site);
+      }
+    }
+  }
+
+  private static <K> int count(final ConcurrentHashMap<K, AtomicInteger> rewrites,
+      final K key) {
+    return rewrites.computeIfAbsent(key, k -> new AtomicInteger()).incrementAndGet();
+  }
+
+  /**
+   * Check whether the selector, or the given site, should not be specialized eagerly.
+   *
+   * @param selector the selector of the node
+   * @param source the source section of the node, or null if unknown
+   */
+  boolean isNonEager(final Id selector, final SourceSection source) {
+    if (nonEagerSelectors.contains(selector)) {
+      return true;
+    }
+    return source != null && !nonEagerSites.isEmpty()
+        && nonEagerSites.contains(SourceCoordinate.createFull(source));
+  }
+}
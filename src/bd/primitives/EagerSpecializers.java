@@ -0,0 +1,291 @@
+package bd.primitives;
+
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map.Entry;
+import java.util.concurrent.atomic.LongAdder;
+
+import bd.basic.nodes.Constant;
+import bd.settings.VmSettings;
+
+
+/**
+ * The ordered set of {@link Specializer}s that are registered for the same selector.
+ *
+ * <p>For eager specialization at run time, the candidates are determined based on the
+ * receiver's class and the {@link Primitive#receiverType()} constraints. The candidates for a
+ * receiver class are computed once, and cached in a dispatch table, so that the lookup does
+ * not need to iterate over all specializers of the selector.
+ *
+ * <p>For the lookup in the parser, the specializers whose {@link Primitive#argNodes()}
+ * patterns require a constant value are indexed by the index of the argument node and the
+ * value. Thus, only the specializers for the actual constant are tried, before the
+ * specializers without such a pattern.
+ *
+ * <p>The {@link Specializer} objects themselves are only created when the selector is first
+ * looked up, which matters for tables created with
+ * {@link PrimitiveTable#createLazily(bd.basic.IdProvider, List)}.
+ *
+ * <p>The objects are only created by a {@link PrimitiveTable}. The lookup for the parser is
+ * public, so that a send site resolver can index them by selector, see
+ * {@link PrimitiveTable#getSelectors()}.
+ *
+ * @param <Context> the type of the context object
+ * @param <ExprT> the root type of expressions used by the language
+ * @param <Id> the type of the identifiers used for mapping to primitives, typically some form
+ *          of interned string construct
+ */
+public final class EagerSpecializers<Context, ExprT, Id> {
+
+  private final String selector;
+
+  /** The specializers, in the order in which they were registered. */
+  private final LazySpecializer<Context, ExprT, Id>[] entries;
+
+  /**
+   * All specializers, created from the {@link #entries} on first use. Specializers with
+   * patterns for the argument nodes come first.
+   */
+  private volatile Specializer<Context, ExprT, Id>[] specializers;
+
+  /** The index for the lookup in the parser, created with the {@link #specializers}. */
+  private volatile ParserIndex<Context, ExprT, Id> parserIndex;
+
+  /** Dispatch table from a receiver class to the specializers that may apply to it. */
+  private final ClassValue<Specializer<Context, ExprT, Id>[]> byReceiver;
+
+  /** Lookups of the selector, if {@link VmSettings#PRIMITIVE_STATISTICS} is enabled. */
+  private final LongAdder lookups;
+
+  /** Lookups that did not find a specializer. */
+  private final LongAdder misses;
+
+  @SuppressWarnings({"unchecked", "rawtypes"})
+  EagerSpecializers(final String selector,
+      final List<LazySpecializer<Context, ExprT, Id>> entries) {
+    this.selector = selector;
+    this.lookups = VmSettings.PRIMITIVE_STATISTICS ? new LongAdder() : null;
+    this.misses = VmSettings.PRIMITIVE_STATISTICS ? new LongAdder() : null;
+    this.entries = entries.toArray(new LazySpecializer[0]);
+    this.byReceiver = new ClassValue<Specializer<Context, ExprT, Id>[]>() {
+      @Override
+      protected Specializer<Context, ExprT, Id>[] computeValue(final Class<?> type) {
+        return getCandidates(type);
+      }
+    };
+  }
+
+  public String getSelector() {
+    return selector;
+  }
+
+  @SuppressWarnings({"unchecked", "rawtypes"})
+  private Specializer<Context, ExprT, Id>[] getSpecializers() {
+    Specializer<Context, ExprT, Id>[] result = specializers;
+    if (result == null) {
+      // specializers with patterns for the argument nodes are more specific,
+      // and are tried first
+      List<Specializer<Context, ExprT, Id>> withPatterns = new ArrayList<>();
+      List<Specializer<Context, ExprT, Id>> others = new ArrayList<>();
+      for (LazySpecializer<Context, ExprT, Id> e : entries) {
+        Specializer<Context, ExprT, Id> s = e.get();
+        if (s.hasArgNodePatterns()) {
+          withPatterns.add(s);
+        } else {
+          others.add(s);
+        }
+      }
+      withPatterns.addAll(others);
+      result = withPatterns.toArray(new Specializer[0]);
+      specializers = result;
+    }
+    return result;
+  }
+
+  private ParserIndex<Context, ExprT, Id> getParserIndex() {
+    ParserIndex<Context, ExprT, Id> result = parserIndex;
+    if (result == null) {
+      result = new ParserIndex<>(getSpecializers());
+      parserIndex = result;
+    }
+    return result;
+  }
+
+  /**
+   * The specializers that can be used in the parser, indexed by the constant values required
+   * by their argument node patterns.
+   */
+  private static final class ParserIndex<Context, ExprT, Id> {
+    /** The indexes of the argument nodes for which a constant value is required. */
+    private final int[] valueIndexes;
+
+    /** Specializers by a list of the index of the argument node and the value. */
+    private final HashMap<List<Object>, Specializer<Context, ExprT, Id>[]> byValue;
+
+    /** The specializers without a value pattern, in the order of the lookup. */
+    private final Specializer<Context, ExprT, Id>[] others;
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    ParserIndex(final Specializer<Context, ExprT, Id>[] specializers) {
+      LinkedHashSet<Integer> indexes = new LinkedHashSet<>();
+      HashMap<List<Object>, List<Specializer<Context, ExprT, Id>>> values = new HashMap<>();
+      List<Specializer<Context, ExprT, Id>> withoutValue = new ArrayList<>();
+
+      for (Specializer<Context, ExprT, Id> s : specializers) {
+        if (!s.inParser()) {
+          continue;
+        }
+        int index = s.getValuePatternIndex();
+        if (index < 0) {
+          withoutValue.add(s);
+        } else {
+          indexes.add(index);
+          values.computeIfAbsent(Arrays.asList(index, s.getValuePattern()),
+              k -> new ArrayList<>()).add(s);
+        }
+      }
+
+      this.valueIndexes = new int[indexes.size()];
+      int i = 0;
+      for (int index : indexes) {
+        valueIndexes[i] = index;
+        i += 1;
+      }
+
+      this.byValue = new HashMap<>();
+      for (Entry<List<Object>, List<Specializer<Context, ExprT, Id>>> e : values.entrySet()) {
+        byValue.put(e.getKey(), e.getValue().toArray(new Specializer[0]));
+      }
+      this.others = withoutValue.toArray(new Specializer[0]);
+    }
+
+    Specializer<Context, ExprT, Id> lookup(final ExprT[] argNodes) {
+      if (argNodes != null) {
+        for (int index : valueIndexes) {
+          if (index < argNodes.length && argNodes[index] instanceof Constant) {
+            Specializer<Context, ExprT, Id>[] candidates = byValue.get(
+                Arrays.asList(index, ((Constant) argNodes[index]).getValue()));
+            Specializer<Context, ExprT, Id> s = firstMatch(candidates, argNodes);
+            if (s != null) {
+              return s;
+            }
+          }
+        }
+      }
+      return firstMatch(others, argNodes);
+    }
+
+    private Specializer<Context, ExprT, Id> firstMatch(
+        final Specializer<Context, ExprT, Id>[] candidates, final ExprT[] argNodes) {
+      if (candidates != null) {
+        for (Specializer<Context, ExprT, Id> s : candidates) {
+          if (s.matches(null, argNodes)) {
+            return s;
+          }
+        }
+      }
+      return null;
+    }
+  }
+
+  @SuppressWarnings({"unchecked", "rawtypes"})
+  private Specializer<Context, ExprT, Id>[] getCandidates(final Class<?> receiverClass) {
+    List<Specializer<Context, ExprT, Id>> candidates = new ArrayList<>();
+    for (Specializer<Context, ExprT, Id> s : getSpecializers()) {
+      if (s.acceptsReceiver(receiverClass)) {
+        candidates.add(s);
+      }
+    }
+    return candidates.toArray(new Specializer[0]);
+  }
+
+  /**
+   * Get the first specializer that can be used in the parser. Specializers that require the
+   * value of a constant argument node are tried first.
+   */
+  public Specializer<Context, ExprT, Id> getParserSpecializer(final ExprT[] argNodes) {
+    Specializer<Context, ExprT, Id> s = getParserIndex().lookup(argNodes);
+
+    if (VmSettings.PRIMITIVE_STATISTICS) {
+      lookups.increment();
+      if (s == null) {
+        misses.increment();
+      } else {
+        s.getStatistics().recordParserSelection();
+      }
+    }
+    return s;
+  }
+
+  /**
+   * Get the first specializer that matches the given arguments.
+   */
+  Specializer<Context, ExprT, Id> getEagerSpecializer(final Object[] arguments,
+      final ExprT[] argumentNodes) {
+    if (VmSettings.PRIMITIVE_STATISTICS) {
+      return getEagerSpecializerAndRecord(arguments, argumentNodes);
+    }
+
+    Specializer<Context, ExprT, Id>[] candidates = getSpecializers();
+    if (candidates.length > 1 && arguments != null && arguments.length > 0
+        && arguments[0] != null) {
+      candidates = byReceiver.get(arguments[0].getClass());
+    }
+
+    for (Specializer<Context, ExprT, Id> s : candidates) {
+      if (s.matches(arguments, argumentNodes)) {
+        return s;
+      }
+    }
+    return null;
+  }
+
+  /**
+   * Variant of {@link #getEagerSpecializer(Object[], Object[])} that updates the statistics.
+   * It does not use the dispatch table, so that all specializers that do not match are
+   * recorded as rejections.
+   */
+  private Specializer<Context, ExprT, Id> getEagerSpecializerAndRecord(
+      final Object[] arguments, final ExprT[] argumentNodes) {
+    lookups.increment();
+    Object receiver = arguments == null || arguments.length == 0 ? null : arguments[0];
+
+    for (Specializer<Context, ExprT, Id> s : getSpecializers()) {
+      if (s.matches(arguments, argumentNodes)) {
+        s.getStatistics().recordEagerSelection();
+        return s;
+      }
+      s.getStatistics().recordRejection(receiver);
+    }
+
+    misses.increment();
+    return null;
+  }
+
+  /**
+   * Print the statistics of the selector and its specializers.
+   */
+  void printStatistics(final PrintStream out) {
+    out.println(selector + ": " + lookups.sum() + " lookups, " + misses.sum() + " misses");
+
+    Specializer<Context, ExprT, Id>[] specializers = this.specializers;
+    if (specializers == null) {
+      // the specializers were not yet created, and thus, not used
+      return;
+    }
+
+    for (Specializer<Context, ExprT, Id> s : specializers) {
+      SpecializerStatistics stats = s.getStatistics();
+      out.println("  " + s.getName() + ": " + stats.getParserSelections() + " in parser, "
+          + stats.getEagerSelections() + " eager, " + stats.getRejections() + " rejected, "
+          + stats.getCreatedNodes() + " nodes created");
+      for (Entry<Class<?>, Long> e : stats.getRejectedReceivers().entrySet()) {
+        out.println("    rejected " + e.getKey().getName() + ": " + e.getValue());
+      }
+    }
+  }
+}
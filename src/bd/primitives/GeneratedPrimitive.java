@@ -0,0 +1,175 @@
+package bd.primitives;
+
+import java.lang.annotation.Annotation;
+
+import com.oracle.truffle.api.dsl.NodeFactory;
+
+
+/**
+ * Holds the values of a @{@link Primitive} annotation, as they were determined at compile time
+ * by the {@link bd.primitives.processor.PrimitiveProcessor}.
+ *
+ * <p>Instances are created by generated {@link PrimitiveRegistry} classes, which avoids
+ * having to read the annotations reflectively at run time.
+ */
+@SuppressWarnings("rawtypes")
+public final class GeneratedPrimitive implements Primitive {
+
+  private final String     className;
+  private final String     primitive;
+  private final String     selector;
+  private final boolean    inParser;
+  private final Class<?>[] receiverType;
+
+  private final Class<? extends Specializer> specializer;
+  private final Class<? extends NodeFactory> extraChild;
+
+  private final boolean requiresArguments;
+  private final boolean disabled;
+  private final boolean noWrapper;
+  private final boolean classSide;
+
+  private final boolean pure;
+
+  private final ArgNode[] argNodes;
+
+  public GeneratedPrimitive(final String className, final String primitive,
+      final String selector, final boolean inParser, final Class<?>[] receiverType,
+      final Class<? extends Specializer> specializer,
+      final Class<? extends NodeFactory> extraChild, final boolean requiresArguments,
+      final boolean disabled, final boolean noWrapper, final boolean classSide,
+      final boolean pure, final ArgNode[] argNodes) {
+    this.className = className;
+    this.primitive = primitive;
+    this.selector = selector;
+    this.inParser = inParser;
+    this.receiverType = receiverType;
+    this.specializer = specializer;
+    this.extraChild = extraChild;
+    this.requiresArguments = requiresArguments;
+    this.disabled = disabled;
+    this.noWrapper = noWrapper;
+    this.classSide = classSide;
+    this.pure = pure;
+    this.argNodes = argNodes;
+  }
+
+  @Override
+  public Class<? extends Annotation> annotationType() {
+    return Primitive.class;
+  }
+
+  @Override
+  public String className() {
+    return className;
+  }
+
+  @Override
+  public String primitive() {
+    return primitive;
+  }
+
+  @Override
+  public String selector() {
+    return selector;
+  }
+
+  @Override
+  public boolean inParser() {
+    return inParser;
+  }
+
+  @Override
+  public Class<?>[] receiverType() {
+    return receiverType.clone();
+  }
+
+  @Override
+  public Class<? extends Specializer> specializer() {
+    return specializer;
+  }
+
+  @Override
+  public Class<? extends NodeFactory> extraChild() {
+    return extraChild;
+  }
+
+  @Override
+  public boolean requiresArguments() {
+    return requiresArguments;
+  }
+
+  @Override
+  public boolean disabled() {
+    return disabled;
+  }
+
+  @Override
+  public boolean noWrapper() {
+    return noWrapper;
+  }
+
+  @Override
+  public boolean classSide() {
+    return classSide;
+  }
+
+  @Override
+  public boolean pure() {
+    return pure;
+  }
+
+  @Override
+  public ArgNode[] argNodes() {
+    return argNodes.clone();
+  }
+
+  @Override
+  public String toString() {
+    return "@" + Primitive.class.getName() + "(selector=" + selector + ", primitive="
+        + primitive + ", className=" + className + ")";
+  }
+
+  /**
+   * Holds the values of a {@link ArgNode} annotation, as determined at compile time.
+   */
+  public static final class GeneratedArgNode implements ArgNode {
+    private final int      index;
+    private final Class<?> type;
+    private final String   value;
+    private final Class<?> valueType;
+
+    public GeneratedArgNode(final int index, final Class<?> type, final String value,
+        final Class<?> valueType) {
+      this.index = index;
+      this.type = type;
+      this.value = value;
+      this.valueType = valueType;
+    }
+
+    @Override
+    public Class<? extends Annotation> annotationType() {
+      return ArgNode.class;
+    }
+
+    @Override
+    public int index() {
+      return index;
+    }
+
+    @Override
+    public Class<?> type() {
+      return type;
+    }
+
+    @Override
+    public String value() {
+      return value;
+    }
+
+    @Override
+    public Class<?> valueType() {
+      return valueType;
+    }
+  }
+}
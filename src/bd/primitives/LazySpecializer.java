@@ -0,0 +1,52 @@
+package bd.primitives;
+
+import com.oracle.truffle.api.dsl.NodeFactory;
+
+
+/**
+ * Holds a {@link Primitive} and its {@link NodeFactory}, and creates the {@link Specializer}
+ * for it only when it is first needed.
+ *
+ * <p>The specializer is created at most once, also when multiple threads request it.
+ *
+ * @param <Context> the type of the context object
+ * @param <ExprT> the root type of expressions used by the language
+ * @param <Id> the type of the identifiers used for mapping to primitives, typically some form
+ *          of interned string construct
+ */
+final class LazySpecializer<Context, ExprT, Id> {
+  private final Primitive                  prim;
+  private final NodeFactory<? extends ExprT> factory;
+
+  private volatile Specializer<Context, ExprT, Id> specializer;
+
+  /** Wrap an already created specializer. */
+  LazySpecializer(final Specializer<Context, ExprT, Id> specializer) {
+    this.prim = specializer.getPrimitive();
+    this.factory = null;
+    this.specializer = specializer;
+  }
+
+  LazySpecializer(final Primitive prim, final NodeFactory<? extends ExprT> factory) {
+    this.prim = prim;
+    this.factory = factory;
+  }
+
+  Primitive getPrimitive() {
+    return prim;
+  }
+
+  Specializer<Context, ExprT, Id> get() {
+    Specializer<Context, ExprT, Id> s = specializer;
+    if (s == null) {
+      synchronized (this) {
+        s = specializer;
+        if (s == null) {
+          s = PrimitiveLoader.createSpecializer(prim, factory);
+          specializer = s;
+        }
+      }
+    }
+    return s;
+  }
+}
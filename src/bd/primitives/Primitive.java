@@ -67,6 +67,52 @@ public @interface Primitive {
    */
   boolean classSide() default false;
 
+  /**
+   * Whether the primitive is free of side effects, and its result depends only on its
+   * arguments. Pure primitives with constant arguments are evaluated in the parser, see
+   * {@link PrimitiveLoader#fold}.
+   */
+  boolean pure() default false;
+
+  /**
+   * Patterns that the argument nodes need to match for the primitive to be used. This allows
+   * specialization based on the shape of the arguments, for instance to use an increment node
+   * for {@code x + 1}.
+   */
+  ArgNode[] argNodes() default {};
+
+  /**
+   * A pattern for the argument node at a given index.
+   *
+   * <p>The node needs to be an instance of {@link #type()}, which can be a node class, or an
+   * interface such as {@link bd.basic.nodes.Constant} or
+   * {@link bd.basic.nodes.LocalVariableRead}. For {@link bd.basic.nodes.Constant} nodes, the
+   * {@link #value()} can further restrict the value of the constant.
+   */
+  @Retention(RetentionPolicy.RUNTIME)
+  @Target({})
+  @interface ArgNode {
+    /** Index of the argument node, 0 is the receiver. */
+    int index();
+
+    /** Type the argument node needs to have. */
+    Class<?> type();
+
+    /**
+     * If not empty, the argument node needs to be a {@link bd.basic.nodes.Constant}, of which
+     * the value is equal to this value, converted to {@link #valueType()}.
+     */
+    String value() default "";
+
+    /**
+     * The class of the constant's value, if a {@link #value()} is given. It can be
+     * {@link String}, {@link Character}, {@link Boolean}, or the boxed class of a numeric
+     * primitive type. Values of another class do not match, for instance, a {@link Long}
+     * pattern does not match the {@link Integer} or character {@code '1'}.
+     */
+    Class<?> valueType() default Long.class;
+  }
+
   @Retention(RetentionPolicy.RUNTIME)
   @Target({ElementType.TYPE})
   @interface Container {
@@ -1,19 +1,30 @@
 package bd.primitives;
 
 import java.lang.reflect.InvocationTargetException;
-import java.util.HashMap;
 import java.util.List;
 
+import com.oracle.truffle.api.Truffle;
 import com.oracle.truffle.api.dsl.NodeFactory;
+import com.oracle.truffle.api.dsl.UnsupportedSpecializationException;
+import com.oracle.truffle.api.frame.VirtualFrame;
+import com.oracle.truffle.api.nodes.Node;
+import com.oracle.truffle.api.source.SourceSection;
 
 import bd.basic.IdProvider;
-import bd.settings.VmSettings;
+import bd.basic.nodes.Constant;
+import bd.basic.nodes.DummyParent;
+import bd.primitives.nodes.PreevaluatedExpression;
 
 
 /**
  * A PrimitiveLoader provides the basic functionality to load the information about primitives
  * from the annotation, based on a list of {@link NodeFactory} objects.
  *
+ * <p>The lookup data structures are kept in an immutable {@link PrimitiveTable}. When a
+ * language runs multiple contexts, the table of the first loader can be obtained with
+ * {@link #getTable()} and be passed to the loaders of the other contexts, which then only
+ * need to register the primitives with {@link #registerPrimitive(Specializer)}.
+ *
  * @param <Context> the type of the context object
  * @param <ExprT> the root type of expressions used by the language
  * @param <Id> the type of the identifiers used for mapping to primitives, typically some form
@@ -23,17 +34,37 @@ public abstract class PrimitiveLoader<Context, ExprT, Id> {
 
   protected final IdProvider<Id> ids;
 
-  /** Primitives for selector. */
-  private final HashMap<Id, Specializer<Context, ExprT, Id>> eagerPrimitives;
+  /** The lookup table, created by {@link #initialize()}, unless a shared one was given. */
+  private PrimitiveTable<Context, ExprT, Id> table;
+
+  /** Rewrites of eager specializations, or null if they are not tracked. */
+  private final EagerRewrites<Id> rewrites;
 
   /**
    * Initializes the PrimitiveLoader.
    *
-   * @param context the object representing the language's context
+   * @param ids the id provider used to convert the selectors of the primitives
    */
   protected PrimitiveLoader(final IdProvider<Id> ids) {
     this.ids = ids;
-    this.eagerPrimitives = new HashMap<>();
+    this.table = null;
+    this.rewrites = EagerRewrites.create();
+  }
+
+  /**
+   * Initializes the PrimitiveLoader with a table that is shared with other loaders.
+   *
+   * <p>The table maps selectors with the {@link IdProvider} it was built with, and, for an
+   * {@link bd.basic.OrdinalIdProvider}, with its ordinals. Thus, the loader uses the same id
+   * provider, see {@link PrimitiveTable#getIdProvider()}, and the language needs to use it
+   * for the selectors it looks up, too.
+   *
+   * @param table a table built before, for instance by the loader of another context
+   */
+  protected PrimitiveLoader(final PrimitiveTable<Context, ExprT, Id> table) {
+    this.ids = table.getIdProvider();
+    this.table = table;
+    this.rewrites = EagerRewrites.create();
   }
 
   public static <Context, ExprT, Id> void add(final List<Specializer<Context, ExprT, Id>> list,
@@ -47,6 +78,15 @@ public abstract class PrimitiveLoader<Context, ExprT, Id> {
     }
   }
 
+  /**
+   * Add the specializers of a generated {@link PrimitiveRegistry}. In contrast to
+   * {@link #add(List, NodeFactory)}, this does not require reflection.
+   */
+  public static <Context, ExprT, Id> void add(final List<Specializer<Context, ExprT, Id>> list,
+      final PrimitiveRegistry registry) {
+    registry.addSpecializers(list);
+  }
+
   @SuppressWarnings({"rawtypes", "unchecked"})
   public static <Context, Id, ExprT> void addAll(
       final List<Specializer<Context, ExprT, Id>> list,
@@ -56,7 +96,10 @@ public abstract class PrimitiveLoader<Context, ExprT, Id> {
     }
   }
 
-  /** Returns all node specializers. */
+  /**
+   * Returns all node specializers. This is not used when the loader is given a shared
+   * {@link PrimitiveTable}.
+   */
   protected abstract List<Specializer<Context, ExprT, Id>> getSpecializers();
 
   /**
@@ -67,27 +110,53 @@ public abstract class PrimitiveLoader<Context, ExprT, Id> {
    * This methods should be called when the constructor completes.
    */
   protected void initialize() {
-    List<Specializer<Context, ExprT, Id>> specializers = getSpecializers();
-    for (Specializer<Context, ExprT, Id> s : specializers) {
-      // TODO: figure out whether we really want it like this with a VmSetting, or whether
-      // there should be something on the context
-      if (s.getPrimitive().disabled() && VmSettings.DYNAMIC_METRICS) {
-        continue;
-      }
+    if (table == null) {
+      table = PrimitiveTable.create(ids, getSpecializers());
+    }
 
+    for (Specializer<Context, ExprT, Id> s : table.getSpecializers()) {
       registerPrimitive(s);
+    }
+  }
 
-      String sel = s.getPrimitive().selector();
+  /**
+   * Setup the lookup data structures without creating any {@link Specializer}s, and without
+   * registering any primitive. Instead, the specializers are created when a selector is first
+   * looked up, and the primitives of a class are registered when the language calls
+   * {@link #registerPrimitives(String)}, for instance when the class is initialized.
+   *
+   * <p>This method should be called when the constructor completes, instead of
+   * {@link #initialize()}.
+   *
+   * @param factories the factories of all primitive nodes
+   */
+  protected void initializeLazily(final List<? extends NodeFactory<? extends ExprT>> factories) {
+    if (table == null) {
+      table = PrimitiveTable.createLazily(ids, factories);
+    }
+  }
 
-      if (!("".equals(sel))) {
-        Id selector = ids.getId(sel);
-        assert !eagerPrimitives.containsKey(
-            selector) : "clash of selectors and eager specialization";
-        eagerPrimitives.put(selector, s);
-      }
+  /**
+   * Register the primitives that have the given {@link Primitive#className()} with
+   * {@link #registerPrimitive(Specializer)}. This is only needed when the loader was
+   * initialized with {@link #initializeLazily(List)}.
+   *
+   * @param className the name of the class, as used in the {@link Primitive} annotations
+   */
+  public final void registerPrimitives(final String className) {
+    for (Specializer<Context, ExprT, Id> s : table.getSpecializers(className)) {
+      registerPrimitive(s);
     }
   }
 
+  /**
+   * Get the lookup table, which can be shared with the loaders of other contexts.
+   * Only available after {@link #initialize()} or {@link #initializeLazily(List)}.
+   */
+  public final PrimitiveTable<Context, ExprT, Id> getTable() {
+    return table;
+  }
+
   /**
    * {@link #initialize()} iterates over all factories and consequently primitives provided by
    * {@link #getFactories()}. These primitives are exposed by this method to allow custom
@@ -105,14 +174,33 @@ public abstract class PrimitiveLoader<Context, ExprT, Id> {
    * It is identified by a selector or id, and the argument nodes. If the lookup is successful,
    * the primitive allows in-parser specialization, and the argument nodes match the
    * expectations, than a specializer is returned. otherwise, null is returned.
+   *
+   * <p>
+   * If multiple specializers are registered for the selector, the first one in the order of
+   * {@link #getSpecializers()} that matches is returned. Specializers with patterns for the
+   * argument nodes, see {@link Primitive#argNodes()}, are tried first.
+   *
+   * <p>
+   * If the selector or the source location had too many rewrites, see
+   * {@link #reportRewrite(Object, SourceSection)}, null is returned.
+   *
+   * @param source the source section of the node to be specialized, or null if unknown
    */
   public final Specializer<Context, ExprT, Id> getParserSpecializer(final Id selector,
-      final ExprT[] argNodes) {
-    Specializer<Context, ExprT, Id> specializer = eagerPrimitives.get(selector);
-    if (specializer != null && specializer.inParser() && specializer.matches(null, argNodes)) {
-      return specializer;
+      final ExprT[] argNodes, final SourceSection source) {
+    if (isNonEager(selector, source)) {
+      return null;
     }
-    return null;
+    return table.getParserSpecializer(selector, argNodes);
+  }
+
+  /**
+   * Lookup a specializer for use during parsing, without a source location.
+   * See {@link #getParserSpecializer(Object, Object[], SourceSection)}.
+   */
+  public final Specializer<Context, ExprT, Id> getParserSpecializer(final Id selector,
+      final ExprT[] argNodes) {
+    return getParserSpecializer(selector, argNodes, null);
   }
 
   /**
@@ -122,13 +210,146 @@ public abstract class PrimitiveLoader<Context, ExprT, Id> {
    * If one is found for the given selector/id, it is checked whether the run-time arguments as
    * well as the argument nodes match for the specialization. If they match, the specializer is
    * returned, null is returned otherwise.
+   *
+   * <p>
+   * If multiple specializers are registered for the selector, the candidates are selected
+   * based on the class of the receiver, i.e., {@code arguments[0]}, and the first one in the
+   * order of {@link #getSpecializers()} that matches is returned. Specializers with patterns
+   * for the argument nodes are tried first.
+   *
+   * <p>
+   * If the selector or the source location had too many rewrites, see
+   * {@link #reportRewrite(Object, SourceSection)}, null is returned.
+   *
+   * @param source the source section of the node to be specialized, or null if unknown
+   */
+  public final Specializer<Context, ExprT, Id> getEagerSpecializer(final Id selector,
+      final Object[] arguments, final ExprT[] argumentNodes, final SourceSection source) {
+    if (isNonEager(selector, source)) {
+      return null;
+    }
+    return table.getEagerSpecializer(selector, arguments, argumentNodes);
+  }
+
+  /**
+   * Lookup a specializer for specialization during execution, without a source location.
+   * See {@link #getEagerSpecializer(Object, Object[], Object[], SourceSection)}.
    */
   public final Specializer<Context, ExprT, Id> getEagerSpecializer(final Id selector,
       final Object[] arguments, final ExprT[] argumentNodes) {
-    Specializer<Context, ExprT, Id> specializer = eagerPrimitives.get(selector);
-    if (specializer != null && specializer.matches(arguments, argumentNodes)) {
-      return specializer;
+    return getEagerSpecializer(selector, arguments, argumentNodes, null);
+  }
+
+  /**
+   * Report that an eagerly specialized node was rewritten to a generic version, for instance
+   * because its {@link bd.primitives.nodes.EagerPrimitive} wrapper was used with a receiver
+   * that it cannot handle.
+   *
+   * <p>When the number of rewrites for the source location or the selector reaches the
+   * threshold configured in the {@link bd.settings.Settings}, the lookup methods do not return
+   * a specializer for it anymore. This avoids nodes that are rewritten back and forth.
+   * The rewrites are tracked per loader, also if the {@link PrimitiveTable} is shared.
+   *
+   * @param selector the selector of the rewritten node
+   * @param source the source section of the rewritten node, or null if unknown
+   */
+  public final void reportRewrite(final Id selector, final SourceSection source) {
+    if (rewrites != null) {
+      rewrites.recordRewrite(selector, source);
+    }
+  }
+
+  /** Whether the selector or source location had too many rewrites to be specialized. */
+  public final boolean isNonEager(final Id selector, final SourceSection source) {
+    return rewrites != null && rewrites.isNonEager(selector, source);
+  }
+
+  /**
+   * Evaluate a pure primitive with constant arguments at parse time.
+   *
+   * <p>If all argument nodes are {@link Constant}s, and a specializer for the selector matches
+   * the constant values and is marked as {@link Primitive#pure()}, the primitive is executed
+   * with the constant values, and the result is turned into a node with
+   * {@link #createConstant(Object, SourceSection)}.
+   *
+   * <p>If the primitive does not support the values, nothing is folded, so that the failure
+   * occurs at run time as usual, see {@link #isFoldingFailure(RuntimeException)}. The node
+   * is created only for the evaluation, and is not counted in the statistics.
+   *
+   * @param selector the selector of the expression
+   * @param argNodes the argument nodes of the expression
+   * @param source the source section of the expression
+   * @param context the language's context, for primitives that need it
+   * @return a node representing the result, or null if the expression cannot be folded
+   */
+  public final ExprT fold(final Id selector, final ExprT[] argNodes,
+      final SourceSection source, final Context context) {
+    Object[] values = new Object[argNodes.length];
+    for (int i = 0; i < argNodes.length; i += 1) {
+      if (!(argNodes[i] instanceof Constant)) {
+        return null;
+      }
+      values[i] = ((Constant) argNodes[i]).getValue();
+    }
+
+    Specializer<Context, ExprT, Id> specializer =
+        table.getEagerSpecializer(selector, values, argNodes);
+    if (specializer == null || !specializer.getPrimitive().pure()) {
+      return null;
+    }
+
+    ExprT node = specializer.createForFolding(values, argNodes, source, context);
+    if (!(node instanceof PreevaluatedExpression)) {
+      return null;
+    }
+
+    // adopt the node, so that it has a root node as when it is executed as part of a method
+    DummyParent parent = new DummyParent(null, (Node) node);
+    VirtualFrame frame =
+        Truffle.getRuntime().createVirtualFrame(values, parent.getFrameDescriptor());
+
+    Object result;
+    try {
+      result = ((PreevaluatedExpression) parent.child).doPreEvaluated(frame, values);
+    } catch (UnsupportedSpecializationException e) {
+      return null;
+    } catch (RuntimeException e) {
+      if (isFoldingFailure(e)) {
+        return null;
+      }
+      throw e;
     }
+    return createConstant(result, source);
+  }
+
+  /**
+   * Determine whether an exception thrown by a primitive during
+   * {@link #fold(Object, Object[], SourceSection, Object)} means that the expression cannot be
+   * folded. {@link UnsupportedSpecializationException}s always do.
+   *
+   * <p>By default, other exceptions are not expected, and are rethrown. Languages override
+   * this method for instance for the exceptions that represent errors of the language, such
+   * as a division by zero, so that the error occurs at run time.
+   *
+   * @param e the exception thrown by the primitive
+   * @return true, if the expression is not folded, false to rethrow the exception
+   */
+  protected boolean isFoldingFailure(final RuntimeException e) {
+    return false;
+  }
+
+  /**
+   * Create a node that evaluates to the given constant value, typically a literal node.
+   * This is used by {@link #fold(Object, Object[], SourceSection, Object)}.
+   *
+   * <p>By default, null is returned, which means that values are not folded. Languages
+   * override this method to enable folding.
+   *
+   * @param value the value computed by a pure primitive
+   * @param source the source section of the folded expression
+   * @return the node, or null, if the value cannot be represented as a constant node
+   */
+  protected ExprT createConstant(final Object value, final SourceSection source) {
     return null;
   }
 
@@ -136,7 +357,7 @@ public abstract class PrimitiveLoader<Context, ExprT, Id> {
    * Create a {@link Specializer} for the given {@link Primitive}.
    */
   @SuppressWarnings("unchecked")
-  private static <Context, ExprT, Id, T> Specializer<Context, ExprT, Id> createSpecializer(
+  static <Context, ExprT, Id, T> Specializer<Context, ExprT, Id> createSpecializer(
       final Primitive prim, final NodeFactory<? extends ExprT> factory) {
     try {
       return prim.specializer()
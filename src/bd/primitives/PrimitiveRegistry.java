@@ -0,0 +1,28 @@
+package bd.primitives;
+
+import java.util.List;
+
+
+/**
+ * A <code>PrimitiveRegistry</code> provides the {@link Specializer} objects for a set of
+ * primitives without using reflection.
+ *
+ * <p>Registries are generated at compile time by the
+ * {@link bd.primitives.processor.PrimitiveProcessor}, which emits one registry per package
+ * that contains nodes marked with @{@link Primitive}. They can be added to the list of
+ * specializers with {@link PrimitiveLoader#add(List, PrimitiveRegistry)}, replacing the
+ * reflective {@link PrimitiveLoader#add(List, com.oracle.truffle.api.dsl.NodeFactory)}.
+ */
+public interface PrimitiveRegistry {
+
+  /**
+   * Add the specializers for all primitives of this registry to the given list.
+   *
+   * @param <Context> the type of the context object
+   * @param <ExprT> the root type of expressions used by the language
+   * @param <Id> the type of the identifiers used for mapping to primitives
+   *
+   * @param list the list to which the specializers are added
+   */
+  <Context, ExprT, Id> void addSpecializers(List<Specializer<Context, ExprT, Id>> list);
+}
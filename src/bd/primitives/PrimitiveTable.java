@@ -0,0 +1,229 @@
+package bd.primitives;
+
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map.Entry;
+
+import com.oracle.truffle.api.dsl.NodeFactory;
+import com.oracle.truffle.api.source.SourceSection;
+
+import bd.basic.IdMap;
+import bd.basic.IdProvider;
+import bd.settings.VmSettings;
+
+
+/**
+ * The immutable lookup table of a {@link PrimitiveLoader}, mapping selectors to the
+ * {@link Specializer}s for eager specialization.
+ *
+ * <p>A table does not depend on a language context. Thus, it can be built once, for instance
+ * per engine, and be shared by the loaders of many contexts (see
+ * {@link PrimitiveLoader#PrimitiveLoader(PrimitiveTable)}). After construction,
+ * the table is not changed anymore, and lookups from multiple parser threads do not need any
+ * synchronization.
+ *
+ * <p>A table created with {@link #createLazily(IdProvider, List)} only indexes the factories
+ * by selector and class name. The specializers are created when a selector is first looked
+ * up, or when the primitives of a class are requested with {@link #getSpecializers(String)}.
+ *
+ * <p>The rewrites reported with {@link PrimitiveLoader#reportRewrite(Object, SourceSection)}
+ * are tracked by each loader, and not by the table.
+ *
+ * @param <Context> the type of the context object
+ * @param <ExprT> the root type of expressions used by the language
+ * @param <Id> the type of the identifiers used for mapping to primitives, typically some form
+ *          of interned string construct
+ */
+public final class PrimitiveTable<Context, ExprT, Id> {
+
+  /** The id provider used for the selectors, which all users of the table need to share. */
+  private final IdProvider<Id> ids;
+
+  /** All enabled primitives, in the order in which they were given. */
+  private final List<LazySpecializer<Context, ExprT, Id>> primitives;
+
+  /** Primitives for selector, possibly multiple ones, for instance for different receivers. */
+  private final IdMap<Id, EagerSpecializers<Context, ExprT, Id>> eagerPrimitives;
+
+  /** All selectors, in the order in which they were first given. */
+  private final List<EagerSpecializers<Context, ExprT, Id>> selectors;
+
+  /** Primitives for {@link Primitive#className()}. */
+  private final HashMap<String, List<LazySpecializer<Context, ExprT, Id>>> byClassName;
+
+  private PrimitiveTable(final IdProvider<Id> ids,
+      final List<LazySpecializer<Context, ExprT, Id>> primitives) {
+    this.ids = ids;
+    this.primitives = new ArrayList<>(primitives.size());
+    this.byClassName = new HashMap<>();
+
+    LinkedHashMap<Id, List<LazySpecializer<Context, ExprT, Id>>> bySelector =
+        new LinkedHashMap<>();
+
+    for (LazySpecializer<Context, ExprT, Id> p : primitives) {
+      Primitive prim = p.getPrimitive();
+
+      // TODO: figure out whether we really want it like this with a VmSetting, or whether
+      // there should be something on the context
+      if (prim.disabled() && VmSettings.DYNAMIC_METRICS) {
+        continue;
+      }
+
+      this.primitives.add(p);
+      byClassName.computeIfAbsent(prim.className(), k -> new ArrayList<>()).add(p);
+
+      String sel = prim.selector();
+
+      if (!("".equals(sel))) {
+        Id selector = ids.getId(sel);
+        bySelector.computeIfAbsent(selector, k -> new ArrayList<>()).add(p);
+      }
+    }
+
+    this.eagerPrimitives = new IdMap<>(ids);
+    this.selectors = new ArrayList<>(bySelector.size());
+    for (Entry<Id, List<LazySpecializer<Context, ExprT, Id>>> e : bySelector.entrySet()) {
+      List<LazySpecializer<Context, ExprT, Id>> forSelector = e.getValue();
+      EagerSpecializers<Context, ExprT, Id> s = new EagerSpecializers<>(
+          forSelector.get(0).getPrimitive().selector(), forSelector);
+      eagerPrimitives.put(e.getKey(), s);
+      selectors.add(s);
+    }
+    eagerPrimitives.freeze();
+  }
+
+  /**
+   * Build the table.
+   *
+   * @param ids the id provider used to convert the selectors of the primitives
+   * @param specializers all specializers, typically from
+   *          {@link PrimitiveLoader#getSpecializers()}
+   * @return the table
+   */
+  public static <Context, ExprT, Id> PrimitiveTable<Context, ExprT, Id> create(
+      final IdProvider<Id> ids, final List<Specializer<Context, ExprT, Id>> specializers) {
+    return new PrimitiveTable<>(ids, wrap(specializers));
+  }
+
+  /**
+   * Build a table that creates the specializers only on first use. In contrast to
+   * {@link #create(IdProvider, List)}, this only reads the {@link Primitive}
+   * annotations of the factories.
+   *
+   * @param ids the id provider used to convert the selectors of the primitives
+   * @param factories the factories of the primitive nodes
+   * @return the table
+   */
+  public static <Context, ExprT, Id> PrimitiveTable<Context, ExprT, Id> createLazily(
+      final IdProvider<Id> ids, final List<? extends NodeFactory<? extends ExprT>> factories) {
+    List<LazySpecializer<Context, ExprT, Id>> primitives = new ArrayList<>();
+    for (NodeFactory<? extends ExprT> factory : factories) {
+      for (Primitive prim : PrimitiveLoader.getPrimitiveAnnotation(factory)) {
+        primitives.add(new LazySpecializer<>(prim, factory));
+      }
+    }
+    return new PrimitiveTable<>(ids, primitives);
+  }
+
+  private static <Context, ExprT, Id> List<LazySpecializer<Context, ExprT, Id>> wrap(
+      final List<Specializer<Context, ExprT, Id>> specializers) {
+    List<LazySpecializer<Context, ExprT, Id>> result = new ArrayList<>(specializers.size());
+    for (Specializer<Context, ExprT, Id> s : specializers) {
+      result.add(new LazySpecializer<>(s));
+    }
+    return result;
+  }
+
+  private static <Context, ExprT, Id> List<Specializer<Context, ExprT, Id>> get(
+      final List<LazySpecializer<Context, ExprT, Id>> primitives) {
+    List<Specializer<Context, ExprT, Id>> result = new ArrayList<>(primitives.size());
+    for (LazySpecializer<Context, ExprT, Id> p : primitives) {
+      result.add(p.get());
+    }
+    return Collections.unmodifiableList(result);
+  }
+
+  /**
+   * The id provider the table was built with. Lookups need to use identifiers, and for an
+   * {@link bd.basic.OrdinalIdProvider} ordinals, of this provider.
+   */
+  public IdProvider<Id> getIdProvider() {
+    return ids;
+  }
+
+  /**
+   * Returns all enabled specializers, as an unmodifiable list.
+   * For a lazily created table, this creates all specializers.
+   */
+  public List<Specializer<Context, ExprT, Id>> getSpecializers() {
+    return get(primitives);
+  }
+
+  /**
+   * Returns the enabled specializers for primitives with the given
+   * {@link Primitive#className()}, as an unmodifiable list.
+   */
+  public List<Specializer<Context, ExprT, Id>> getSpecializers(final String className) {
+    List<LazySpecializer<Context, ExprT, Id>> forClass = byClassName.get(className);
+    if (forClass == null) {
+      return Collections.emptyList();
+    }
+    return get(forClass);
+  }
+
+  /**
+   * See {@link PrimitiveLoader#getParserSpecializer(Object, Object[], SourceSection)}, which
+   * in addition takes the rewrites into account.
+   */
+  public Specializer<Context, ExprT, Id> getParserSpecializer(final Id selector,
+      final ExprT[] argNodes) {
+    EagerSpecializers<Context, ExprT, Id> s = eagerPrimitives.get(selector);
+    if (s == null) {
+      return null;
+    }
+    return s.getParserSpecializer(argNodes);
+  }
+
+  /**
+   * See
+   * {@link PrimitiveLoader#getEagerSpecializer(Object, Object[], Object[], SourceSection)},
+   * which in addition takes the rewrites into account.
+   */
+  public Specializer<Context, ExprT, Id> getEagerSpecializer(final Id selector,
+      final Object[] arguments, final ExprT[] argumentNodes) {
+    EagerSpecializers<Context, ExprT, Id> s = eagerPrimitives.get(selector);
+    if (s == null) {
+      return null;
+    }
+    return s.getEagerSpecializer(arguments, argumentNodes);
+  }
+
+  /**
+   * The specializers of all selectors, in the order in which they were first given, as an
+   * unmodifiable list.
+   */
+  public List<EagerSpecializers<Context, ExprT, Id>> getSelectors() {
+    return Collections.unmodifiableList(selectors);
+  }
+
+  /**
+   * Print the number of lookups and misses per selector, and the counters of the
+   * specializers, see {@link SpecializerStatistics}. Only available if
+   * {@link VmSettings#PRIMITIVE_STATISTICS} is enabled.
+   *
+   * @param out the stream to print to
+   */
+  public void printStatistics(final PrintStream out) {
+    if (!VmSettings.PRIMITIVE_STATISTICS) {
+      throw new IllegalStateException("Primitive statistics are not enabled in the settings");
+    }
+
+    for (EagerSpecializers<Context, ExprT, Id> s : selectors) {
+      s.printStatistics(out);
+    }
+  }
+}
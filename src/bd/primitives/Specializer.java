@@ -5,7 +5,9 @@ import java.lang.reflect.InvocationTargetException;
 import com.oracle.truffle.api.dsl.NodeFactory;
 import com.oracle.truffle.api.source.SourceSection;
 
+import bd.basic.nodes.Constant;
 import bd.inlining.nodes.WithSource;
+import bd.primitives.Primitive.ArgNode;
 import bd.primitives.Primitive.NoChild;
 import bd.primitives.nodes.EagerlySpecializable;
 import bd.primitives.nodes.WithContext;
@@ -30,28 +32,137 @@ public class Specializer<Context, ExprT, Id> {
   private final int     extraArity;
   private final boolean requiresContext;
 
-  @SuppressWarnings("unchecked")
+  /** The receiver types of the primitive, or null if there are no constraints. */
+  private final Class<?>[] receiverTypes;
+
+  /** Caches for each receiver class whether it is one of the {@link #receiverTypes}. */
+  private final ClassValue<Boolean> acceptedReceivers;
+
+  /** The patterns for the argument nodes, or null if there are none. */
+  private final ArgNode[] argNodePatterns;
+
+  /**
+   * The values of the {@link #argNodePatterns}, converted to their
+   * {@link ArgNode#valueType()}, with null for patterns without value.
+   */
+  private final Object[] argNodeValues;
+
+  /** The counters, or null if {@link VmSettings#PRIMITIVE_STATISTICS} is disabled. */
+  private final SpecializerStatistics statistics;
+
   public Specializer(final Primitive prim, final NodeFactory<ExprT> fact) {
+    this(prim, fact, getExtraChildFactory(prim));
+  }
+
+  /**
+   * Create a specializer with an already resolved factory for the extra child. This avoids
+   * reflection and is used by the generated {@link PrimitiveRegistry} classes.
+   *
+   * @param prim the primitive annotation
+   * @param fact the factory for the primitive node
+   * @param extraChildFactory the factory for the extra child, or null
+   */
+  public Specializer(final Primitive prim, final NodeFactory<ExprT> fact,
+      final NodeFactory<? extends ExprT> extraChildFactory) {
     this.prim = prim;
     this.fact = fact;
 
     this.requiresContext = WithContext.class.isAssignableFrom(fact.getNodeClass());
+    this.statistics = VmSettings.PRIMITIVE_STATISTICS ? new SpecializerStatistics() : null;
 
-    if (prim.extraChild() == NoChild.class) {
-      extraChildFactory = null;
+    Class<?>[] receivers = prim.receiverType();
+    if (receivers.length == 0) {
+      this.receiverTypes = null;
+      this.acceptedReceivers = null;
+    } else {
+      this.receiverTypes = receivers;
+      this.acceptedReceivers = new ClassValue<Boolean>() {
+        @Override
+        protected Boolean computeValue(final Class<?> receiverClass) {
+          for (Class<?> c : receiverTypes) {
+            if (c.isAssignableFrom(receiverClass)) {
+              return true;
+            }
+          }
+          return false;
+        }
+      };
+    }
+
+    ArgNode[] patterns = prim.argNodes();
+    if (patterns.length == 0) {
+      this.argNodePatterns = null;
+      this.argNodeValues = null;
+    } else {
+      this.argNodePatterns = patterns;
+      this.argNodeValues = new Object[patterns.length];
+      for (int i = 0; i < patterns.length; i += 1) {
+        argNodeValues[i] = getPatternValue(patterns[i]);
+      }
+    }
+
+    this.extraChildFactory = extraChildFactory;
+    if (extraChildFactory == null) {
       extraArity = 0;
     } else {
-      try {
-        extraChildFactory =
-            (NodeFactory<? extends ExprT>) prim.extraChild().getMethod("getInstance")
-                                               .invoke(null);
-        extraArity = extraChildFactory.getExecutionSignature().size();
-      } catch (IllegalAccessException | IllegalArgumentException
-          | InvocationTargetException | NoSuchMethodException
-          | SecurityException e) {
-        throw new RuntimeException(e);
+      extraArity = extraChildFactory.getExecutionSignature().size();
+    }
+  }
+
+  @SuppressWarnings("unchecked")
+  private static <ExprT> NodeFactory<? extends ExprT> getExtraChildFactory(
+      final Primitive prim) {
+    if (prim.extraChild() == NoChild.class) {
+      return null;
+    }
+
+    try {
+      return (NodeFactory<? extends ExprT>) prim.extraChild().getMethod("getInstance")
+                                                .invoke(null);
+    } catch (IllegalAccessException | IllegalArgumentException
+        | InvocationTargetException | NoSuchMethodException
+        | SecurityException e) {
+      throw new RuntimeException(e);
+    }
+  }
+
+  /**
+   * Convert the {@link ArgNode#value()} to its {@link ArgNode#valueType()}.
+   *
+   * @return the value, or null if the pattern does not restrict the value
+   */
+  private static Object getPatternValue(final ArgNode pattern) {
+    String value = pattern.value();
+    if ("".equals(value)) {
+      return null;
+    }
+
+    Class<?> type = pattern.valueType();
+    try {
+      if (type == String.class) {
+        return value;
+      } else if (type == Long.class) {
+        return Long.valueOf(value);
+      } else if (type == Integer.class) {
+        return Integer.valueOf(value);
+      } else if (type == Short.class) {
+        return Short.valueOf(value);
+      } else if (type == Byte.class) {
+        return Byte.valueOf(value);
+      } else if (type == Double.class) {
+        return Double.valueOf(value);
+      } else if (type == Float.class) {
+        return Float.valueOf(value);
+      } else if (type == Boolean.class && ("true".equals(value) || "false".equals(value))) {
+        return Boolean.valueOf(value);
+      } else if (type == Character.class && value.length() == 1) {
+        return value.charAt(0);
       }
+    } catch (NumberFormatException e) {
+      // reported below
     }
+    throw new IllegalArgumentException("The value \"" + value + "\" of the argument node "
+        + pattern.index() + " cannot be converted to " + type.getName());
   }
 
   public Primitive getPrimitive() {
@@ -70,6 +181,25 @@ public class Specializer<Context, ExprT, Id> {
     return prim.classSide();
   }
 
+  /**
+   * Get the counters of this specializer.
+   *
+   * @return the counters, or null if {@link VmSettings#PRIMITIVE_STATISTICS} is disabled
+   */
+  public SpecializerStatistics getStatistics() {
+    return statistics;
+  }
+
+  /**
+   * Get the number of arguments evaluated for the nodes created by this specializer, which
+   * corresponds to the number of argument nodes. For an arity of up to three, the nodes can
+   * be executed with the arity-specific methods of
+   * {@link bd.primitives.nodes.PreevaluatedExpression}, which do not need an argument array.
+   */
+  public int getArity() {
+    return fact.getExecutionSignature().size() - (extraChildFactory != null ? 1 : 0);
+  }
+
   public String getName() {
     return fact.getClass().getSimpleName();
   }
@@ -79,17 +209,91 @@ public class Specializer<Context, ExprT, Id> {
     // there should be something on the context
     assert !(prim.disabled() && VmSettings.DYNAMIC_METRICS);
 
-    if (args == null || prim.receiverType().length == 0) {
+    if (argNodePatterns != null && !matchesArgNodes(argNodes)) {
+      return false;
+    }
+
+    if (args == null || receiverTypes == null) {
       // no constraints, so, it matches
       return true;
     }
 
-    for (Class<?> c : prim.receiverType()) {
-      if (c.isInstance(args[0])) {
-        return true;
+    Object receiver = args[0];
+    return receiver != null && acceptsReceiver(receiver.getClass());
+  }
+
+  /**
+   * Whether the primitive has patterns for the argument nodes, see
+   * {@link Primitive#argNodes()}.
+   */
+  public boolean hasArgNodePatterns() {
+    return argNodePatterns != null;
+  }
+
+  private boolean matchesArgNodes(final ExprT[] argNodes) {
+    if (argNodes == null) {
+      return false;
+    }
+
+    for (int i = 0; i < argNodePatterns.length; i += 1) {
+      ArgNode p = argNodePatterns[i];
+      if (p.index() >= argNodes.length) {
+        return false;
+      }
+
+      Object node = argNodes[p.index()];
+      if (!p.type().isInstance(node)) {
+        return false;
+      }
+
+      Object value = argNodeValues[i];
+      if (value != null) {
+        if (!(node instanceof Constant) || !value.equals(((Constant) node).getValue())) {
+          return false;
+        }
+      }
+    }
+    return true;
+  }
+
+  /**
+   * The index of the first argument node whose pattern requires a constant value, used by
+   * {@link EagerSpecializers} to index the specializers by value.
+   *
+   * @return the index of the argument node, or -1 if no pattern has a value
+   */
+  int getValuePatternIndex() {
+    if (argNodePatterns != null) {
+      for (int i = 0; i < argNodePatterns.length; i += 1) {
+        if (argNodeValues[i] != null) {
+          return argNodePatterns[i].index();
+        }
+      }
+    }
+    return -1;
+  }
+
+  /**
+   * The value required for the argument node at {@link #getValuePatternIndex()}.
+   */
+  Object getValuePattern() {
+    for (int i = 0; i < argNodePatterns.length; i += 1) {
+      if (argNodeValues[i] != null) {
+        return argNodeValues[i];
       }
     }
-    return false;
+    throw new IllegalStateException("The specializer has no pattern with a value");
+  }
+
+  /**
+   * Check whether the receiver class is compatible with the {@link Primitive#receiverType()}
+   * constraints. The result is cached per class.
+   */
+  public boolean acceptsReceiver(final Class<?> receiverClass) {
+    if (receiverTypes == null) {
+      return true;
+    }
+    return acceptedReceivers.get(receiverClass);
   }
 
   private int numberOfNodeConstructorArguments(final ExprT[] argNodes) {
@@ -100,9 +304,28 @@ public class Specializer<Context, ExprT, Id> {
         (prim.requiresArguments() ? 1 : 0);
   }
 
-  @SuppressWarnings("unchecked")
   public ExprT create(final Object[] arguments, final ExprT[] argNodes,
       final SourceSection section, final boolean eagerWrapper, final Context context) {
+    if (VmSettings.PRIMITIVE_STATISTICS) {
+      statistics.recordCreation();
+    }
+    return createNode(arguments, argNodes, section, eagerWrapper, context);
+  }
+
+  /**
+   * Create a node to evaluate a pure primitive at parse time, see
+   * {@link PrimitiveLoader#fold}. Since the arguments are already evaluated, the node is
+   * created without argument nodes, as for an eager wrapper. The node is not counted in the
+   * {@link SpecializerStatistics}, because it does not become part of an AST.
+   */
+  ExprT createForFolding(final Object[] arguments, final ExprT[] argNodes,
+      final SourceSection section, final Context context) {
+    return createNode(arguments, argNodes, section, true, context);
+  }
+
+  @SuppressWarnings("unchecked")
+  private ExprT createNode(final Object[] arguments, final ExprT[] argNodes,
+      final SourceSection section, final boolean eagerWrapper, final Context context) {
     assert arguments == null || arguments.length >= argNodes.length;
     int numArgs = numberOfNodeConstructorArguments(argNodes);
 
@@ -0,0 +1,83 @@
+package bd.primitives;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+
+/**
+ * Counters for one {@link Specializer}, recorded when
+ * {@link bd.settings.VmSettings#PRIMITIVE_STATISTICS} is enabled.
+ *
+ * <p>The counters record how often the specializer was selected by
+ * {@link PrimitiveLoader#getParserSpecializer(Object, Object[])} and
+ * {@link PrimitiveLoader#getEagerSpecializer(Object, Object[], Object[])}, how often the
+ * eager lookup rejected it because {@link Specializer#matches(Object[], Object[])} failed,
+ * and how many nodes it created. For rejections, the classes of the receivers are counted,
+ * too, which indicates for which receivers a new primitive may be beneficial.
+ */
+public final class SpecializerStatistics {
+  private final LongAdder parserSelections = new LongAdder();
+  private final LongAdder eagerSelections  = new LongAdder();
+  private final LongAdder rejections       = new LongAdder();
+  private final LongAdder createdNodes     = new LongAdder();
+
+  private final ConcurrentHashMap<Class<?>, LongAdder> rejectedReceivers =
+      new ConcurrentHashMap<>();
+
+  void recordParserSelection() {
+    parserSelections.increment();
+  }
+
+  void recordEagerSelection() {
+    eagerSelections.increment();
+  }
+
+  void recordRejection(final Object receiver) {
+    rejections.increment();
+    if (receiver != null) {
+      rejectedReceivers.computeIfAbsent(receiver.getClass(), k -> new LongAdder())
+                       .increment();
+    }
+  }
+
+  void recordCreation() {
+    createdNodes.increment();
+  }
+
+  public long getParserSelections() {
+    return parserSelections.sum();
+  }
+
+  public long getEagerSelections() {
+    return eagerSelections.sum();
+  }
+
+  public long getRejections() {
+    return rejections.sum();
+  }
+
+  public long getCreatedNodes() {
+    return createdNodes.sum();
+  }
+
+  /**
+   * Get the number of rejections per receiver class, ordered by decreasing count.
+   */
+  public Map<Class<?>, Long> getRejectedReceivers() {
+    List<Entry<Class<?>, LongAdder>> entries = new ArrayList<>(rejectedReceivers.entrySet());
+    Collections.sort(entries,
+        (a, b) -> Long.compare(b.getValue().sum(), a.getValue().sum()));
+
+    Map<Class<?>, Long> result = new LinkedHashMap<>();
+    for (Entry<Class<?>, LongAdder> e : entries) {
+      result.put(e.getKey(), e.getValue().sum());
+    }
+    return result;
+  }
+}
@@ -8,6 +8,21 @@ import bd.tools.nodes.Operation;
  * Mark a node to be a primitive operation that can be eagerly placed into the AST using the
  * facilities offered by {@link Specializer}. <code>EagerPrimitive</code> nodes are themselves
  * merely wrappers. The actual operation is normally nested inside the node.
+ *
+ * <p>When a wrapper needs to be replaced by a generic node, because it was used with
+ * arguments the primitive does not support, the language should report the rewrite with
+ * {@link bd.primitives.PrimitiveLoader#reportRewrite}, which prevents repeated eager
+ * specialization of unstable sites.
+ *
+ * <p>A wrapper for an operation with up to three arguments should evaluate its arguments
+ * into locals, and call the wrapped node with the arity-specific methods of
+ * {@link PreevaluatedExpression}, e.g.,
+ * {@link PreevaluatedExpression#doPreBinary(com.oracle.truffle.api.frame.VirtualFrame,
+ * Object, Object)}, to avoid allocating an argument array. {@link Specializer#getArity()}
+ * indicates which of the methods applies.
+ *
+ * <p>{@link EagerPrimitiveExecutor} implements the execution of the wrapped node, including
+ * the handling of unsupported arguments, and can be used by wrappers as child node.
  */
 public interface EagerPrimitive extends Operation, PreevaluatedExpression {
 
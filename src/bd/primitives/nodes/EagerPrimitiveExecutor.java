@@ -0,0 +1,109 @@
+package bd.primitives.nodes;
+
+import com.oracle.truffle.api.dsl.UnsupportedSpecializationException;
+import com.oracle.truffle.api.frame.VirtualFrame;
+import com.oracle.truffle.api.nodes.Node;
+import com.oracle.truffle.api.profiles.BranchProfile;
+
+
+/**
+ * Executes the primitive node of an {@link EagerPrimitive} wrapper, and handles the case that
+ * the primitive does not support the arguments.
+ *
+ * <p>Since a wrapper needs to be a subclass of the language's expression node class, this
+ * functionality is provided as a node, which a wrapper uses as child. The wrapper evaluates
+ * its arguments, and passes them to one of the <code>execute</code> methods. If the primitive
+ * throws an {@link UnsupportedSpecializationException}, the {@link RewriteHandler} of the
+ * wrapper is invoked to replace the wrapper with a generic version, for instance a message
+ * send, and to complete the execution with it.
+ *
+ * <p>The failure case is guarded by a {@link BranchProfile}. Thus, as long as the primitive
+ * did not fail, the executor reduces to the call of the primitive in compiled code. Should
+ * the handler not replace the wrapper, for instance because it executes the generic version
+ * only once, the fallback is compiled afterwards instead of invalidating the code on every
+ * failure.
+ *
+ * @param <P> the type of the primitive node
+ */
+public final class EagerPrimitiveExecutor<P extends Node & PreevaluatedExpression>
+    extends Node {
+
+  /**
+   * Replaces an {@link EagerPrimitive} wrapper with a generic version.
+   */
+  public interface RewriteHandler {
+    /**
+     * Replace the wrapper with a generic version, and execute it with the given arguments.
+     * Typically, an implementation also reports the rewrite with
+     * {@link bd.primitives.PrimitiveLoader#reportRewrite}.
+     *
+     * @param frame current frame with local variables etc.
+     * @param args the already evaluated arguments
+     * @return the result of executing the generic version
+     */
+    Object rewriteAndExecute(VirtualFrame frame, Object[] args);
+  }
+
+  @Child private P primitive;
+
+  private final RewriteHandler handler;
+
+  private final BranchProfile fallback;
+
+  public EagerPrimitiveExecutor(final P primitive, final RewriteHandler handler) {
+    this.primitive = primitive;
+    this.handler = handler;
+    this.fallback = BranchProfile.create();
+  }
+
+  public P getPrimitive() {
+    return primitive;
+  }
+
+  public Object executeEvaluated(final VirtualFrame frame, final Object[] args) {
+    try {
+      return primitive.doPreEvaluated(frame, args);
+    } catch (UnsupportedSpecializationException e) {
+      return rewrite(frame, args);
+    }
+  }
+
+  public Object executeNullary(final VirtualFrame frame) {
+    try {
+      return primitive.doPreNullary(frame);
+    } catch (UnsupportedSpecializationException e) {
+      return rewrite(frame, new Object[0]);
+    }
+  }
+
+  public Object executeUnary(final VirtualFrame frame, final Object arg0) {
+    try {
+      return primitive.doPreUnary(frame, arg0);
+    } catch (UnsupportedSpecializationException e) {
+      return rewrite(frame, new Object[] {arg0});
+    }
+  }
+
+  public Object executeBinary(final VirtualFrame frame, final Object arg0,
+      final Object arg1) {
+    try {
+      return primitive.doPreBinary(frame, arg0, arg1);
+    } catch (UnsupportedSpecializationException e) {
+      return rewrite(frame, new Object[] {arg0, arg1});
+    }
+  }
+
+  public Object executeTernary(final VirtualFrame frame, final Object arg0,
+      final Object arg1, final Object arg2) {
+    try {
+      return primitive.doPreTernary(frame, arg0, arg1, arg2);
+    } catch (UnsupportedSpecializationException e) {
+      return rewrite(frame, new Object[] {arg0, arg1, arg2});
+    }
+  }
+
+  private Object rewrite(final VirtualFrame frame, final Object[] args) {
+    fallback.enter();
+    return handler.rewriteAndExecute(frame, args);
+  }
+}
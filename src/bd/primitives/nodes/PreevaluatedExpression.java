@@ -2,6 +2,7 @@ package bd.primitives.nodes;
 
 import com.oracle.truffle.api.frame.VirtualFrame;
 import com.oracle.truffle.api.nodes.NodeInterface;
+import com.oracle.truffle.api.nodes.UnexpectedResultException;
 
 
 /**
@@ -12,6 +13,21 @@ import com.oracle.truffle.api.nodes.NodeInterface;
  * The interface is useful during specialization. First, the arguments are evaluated, and
  * afterwards, a new specialization node is determined that then needs to be able to accept the
  * arguments.
+ *
+ * <p>
+ * For the common case of operations with up to three arguments, the arity-specific methods
+ * {@link #doPreNullary(VirtualFrame)}, {@link #doPreUnary(VirtualFrame, Object)},
+ * {@link #doPreBinary(VirtualFrame, Object, Object)}, and
+ * {@link #doPreTernary(VirtualFrame, Object, Object, Object)} avoid allocating an argument
+ * array. By default, they delegate to {@link #doPreEvaluated(VirtualFrame, Object[])}, and
+ * nodes should override them to execute directly.
+ *
+ * <p>
+ * For parents that can use unboxed values, the typed methods, for instance
+ * {@link #doPreBinaryLong(VirtualFrame, Object, Object)}, return a {@code long},
+ * {@code double}, or {@code boolean}, and throw an {@link UnexpectedResultException} with the
+ * boxed result, if the result is of another type. By default, they unbox the result of the
+ * generic methods, and nodes should override them to avoid boxing.
  */
 public interface PreevaluatedExpression extends NodeInterface {
 
@@ -23,4 +39,222 @@ public interface PreevaluatedExpression extends NodeInterface {
    * @return result of node execution
    */
   Object doPreEvaluated(VirtualFrame frame, Object[] args);
+
+  /**
+   * Execute the node without arguments.
+   *
+   * @param frame current frame with local variables etc.
+   * @return result of node execution
+   */
+  default Object doPreNullary(final VirtualFrame frame) {
+    return doPreEvaluated(frame, new Object[0]);
+  }
+
+  /**
+   * Execute the node with the given argument, typically the receiver.
+   *
+   * @param frame current frame with local variables etc.
+   * @param arg0 the already evaluated argument
+   * @return result of node execution
+   */
+  default Object doPreUnary(final VirtualFrame frame, final Object arg0) {
+    return doPreEvaluated(frame, new Object[] {arg0});
+  }
+
+  /**
+   * Execute the node with the given two arguments.
+   *
+   * @param frame current frame with local variables etc.
+   * @param arg0 the first already evaluated argument, typically the receiver
+   * @param arg1 the second already evaluated argument
+   * @return result of node execution
+   */
+  default Object doPreBinary(final VirtualFrame frame, final Object arg0, final Object arg1) {
+    return doPreEvaluated(frame, new Object[] {arg0, arg1});
+  }
+
+  /**
+   * Execute the node with the given three arguments.
+   *
+   * @param frame current frame with local variables etc.
+   * @param arg0 the first already evaluated argument, typically the receiver
+   * @param arg1 the second already evaluated argument
+   * @param arg2 the third already evaluated argument
+   * @return result of node execution
+   */
+  default Object doPreTernary(final VirtualFrame frame, final Object arg0, final Object arg1,
+      final Object arg2) {
+    return doPreEvaluated(frame, new Object[] {arg0, arg1, arg2});
+  }
+
+  /**
+   * Execute the node with the given arguments, expecting a {@code long} result.
+   *
+   * @param frame current frame with local variables etc.
+   * @param args already evaluated arguments for the node
+   * @return result of node execution
+   * @throws UnexpectedResultException if the result is not a {@code long}
+   */
+  default long doPreEvaluatedLong(final VirtualFrame frame, final Object[] args)
+      throws UnexpectedResultException {
+    return TypedResults.expectLong(doPreEvaluated(frame, args));
+  }
+
+  /**
+   * Execute the node without arguments, expecting a {@code long} result.
+   *
+   * @see #doPreNullary(VirtualFrame)
+   * @throws UnexpectedResultException if the result is not a {@code long}
+   */
+  default long doPreNullaryLong(final VirtualFrame frame)
+      throws UnexpectedResultException {
+    return TypedResults.expectLong(doPreNullary(frame));
+  }
+
+  /**
+   * Execute the node with the given argument, expecting a {@code long} result.
+   *
+   * @see #doPreUnary(VirtualFrame, Object)
+   * @throws UnexpectedResultException if the result is not a {@code long}
+   */
+  default long doPreUnaryLong(final VirtualFrame frame, final Object arg0)
+      throws UnexpectedResultException {
+    return TypedResults.expectLong(doPreUnary(frame, arg0));
+  }
+
+  /**
+   * Execute the node with the given two arguments, expecting a {@code long} result.
+   *
+   * @see #doPreBinary(VirtualFrame, Object, Object)
+   * @throws UnexpectedResultException if the result is not a {@code long}
+   */
+  default long doPreBinaryLong(final VirtualFrame frame, final Object arg0,
+      final Object arg1) throws UnexpectedResultException {
+    return TypedResults.expectLong(doPreBinary(frame, arg0, arg1));
+  }
+
+  /**
+   * Execute the node with the given three arguments, expecting a {@code long} result.
+   *
+   * @see #doPreTernary(VirtualFrame, Object, Object, Object)
+   * @throws UnexpectedResultException if the result is not a {@code long}
+   */
+  default long doPreTernaryLong(final VirtualFrame frame, final Object arg0,
+      final Object arg1, final Object arg2) throws UnexpectedResultException {
+    return TypedResults.expectLong(doPreTernary(frame, arg0, arg1, arg2));
+  }
+
+  /**
+   * Execute the node with the given arguments, expecting a {@code double} result.
+   *
+   * @param frame current frame with local variables etc.
+   * @param args already evaluated arguments for the node
+   * @return result of node execution
+   * @throws UnexpectedResultException if the result is not a {@code double}
+   */
+  default double doPreEvaluatedDouble(final VirtualFrame frame, final Object[] args)
+      throws UnexpectedResultException {
+    return TypedResults.expectDouble(doPreEvaluated(frame, args));
+  }
+
+  /**
+   * Execute the node without arguments, expecting a {@code double} result.
+   *
+   * @see #doPreNullary(VirtualFrame)
+   * @throws UnexpectedResultException if the result is not a {@code double}
+   */
+  default double doPreNullaryDouble(final VirtualFrame frame)
+      throws UnexpectedResultException {
+    return TypedResults.expectDouble(doPreNullary(frame));
+  }
+
+  /**
+   * Execute the node with the given argument, expecting a {@code double} result.
+   *
+   * @see #doPreUnary(VirtualFrame, Object)
+   * @throws UnexpectedResultException if the result is not a {@code double}
+   */
+  default double doPreUnaryDouble(final VirtualFrame frame, final Object arg0)
+      throws UnexpectedResultException {
+    return TypedResults.expectDouble(doPreUnary(frame, arg0));
+  }
+
+  /**
+   * Execute the node with the given two arguments, expecting a {@code double} result.
+   *
+   * @see #doPreBinary(VirtualFrame, Object, Object)
+   * @throws UnexpectedResultException if the result is not a {@code double}
+   */
+  default double doPreBinaryDouble(final VirtualFrame frame, final Object arg0,
+      final Object arg1) throws UnexpectedResultException {
+    return TypedResults.expectDouble(doPreBinary(frame, arg0, arg1));
+  }
+
+  /**
+   * Execute the node with the given three arguments, expecting a {@code double} result.
+   *
+   * @see #doPreTernary(VirtualFrame, Object, Object, Object)
+   * @throws UnexpectedResultException if the result is not a {@code double}
+   */
+  default double doPreTernaryDouble(final VirtualFrame frame, final Object arg0,
+      final Object arg1, final Object arg2) throws UnexpectedResultException {
+    return TypedResults.expectDouble(doPreTernary(frame, arg0, arg1, arg2));
+  }
+
+  /**
+   * Execute the node with the given arguments, expecting a {@code boolean} result.
+   *
+   * @param frame current frame with local variables etc.
+   * @param args already evaluated arguments for the node
+   * @return result of node execution
+   * @throws UnexpectedResultException if the result is not a {@code boolean}
+   */
+  default boolean doPreEvaluatedBoolean(final VirtualFrame frame, final Object[] args)
+      throws UnexpectedResultException {
+    return TypedResults.expectBoolean(doPreEvaluated(frame, args));
+  }
+
+  /**
+   * Execute the node without arguments, expecting a {@code boolean} result.
+   *
+   * @see #doPreNullary(VirtualFrame)
+   * @throws UnexpectedResultException if the result is not a {@code boolean}
+   */
+  default boolean doPreNullaryBoolean(final VirtualFrame frame)
+      throws UnexpectedResultException {
+    return TypedResults.expectBoolean(doPreNullary(frame));
+  }
+
+  /**
+   * Execute the node with the given argument, expecting a {@code boolean} result.
+   *
+   * @see #doPreUnary(VirtualFrame, Object)
+   * @throws UnexpectedResultException if the result is not a {@code boolean}
+   */
+  default boolean doPreUnaryBoolean(final VirtualFrame frame, final Object arg0)
+      throws UnexpectedResultException {
+    return TypedResults.expectBoolean(doPreUnary(frame, arg0));
+  }
+
+  /**
+   * Execute the node with the given two arguments, expecting a {@code boolean} result.
+   *
+   * @see #doPreBinary(VirtualFrame, Object, Object)
+   * @throws UnexpectedResultException if the result is not a {@code boolean}
+   */
+  default boolean doPreBinaryBoolean(final VirtualFrame frame, final Object arg0,
+      final Object arg1) throws UnexpectedResultException {
+    return TypedResults.expectBoolean(doPreBinary(frame, arg0, arg1));
+  }
+
+  /**
+   * Execute the node with the given three arguments, expecting a {@code boolean} result.
+   *
+   * @see #doPreTernary(VirtualFrame, Object, Object, Object)
+   * @throws UnexpectedResultException if the result is not a {@code boolean}
+   */
+  default boolean doPreTernaryBoolean(final VirtualFrame frame, final Object arg0,
+      final Object arg1, final Object arg2) throws UnexpectedResultException {
+    return TypedResults.expectBoolean(doPreTernary(frame, arg0, arg1, arg2));
+  }
 }
@@ -0,0 +1,37 @@
+package bd.primitives.nodes;
+
+import com.oracle.truffle.api.nodes.UnexpectedResultException;
+
+
+/**
+ * Unboxes the results of generic executions for the typed methods of
+ * {@link PreevaluatedExpression}.
+ */
+final class TypedResults {
+
+  private TypedResults() {}
+
+  /** Unbox the result of a generic execution, or throw if it is not a {@code long}. */
+  static long expectLong(final Object result) throws UnexpectedResultException {
+    if (result instanceof Long) {
+      return (long) result;
+    }
+    throw new UnexpectedResultException(result);
+  }
+
+  /** Unbox the result of a generic execution, or throw if it is not a {@code double}. */
+  static double expectDouble(final Object result) throws UnexpectedResultException {
+    if (result instanceof Double) {
+      return (double) result;
+    }
+    throw new UnexpectedResultException(result);
+  }
+
+  /** Unbox the result of a generic execution, or throw if it is not a {@code boolean}. */
+  static boolean expectBoolean(final Object result) throws UnexpectedResultException {
+    if (result instanceof Boolean) {
+      return (boolean) result;
+    }
+    throw new UnexpectedResultException(result);
+  }
+}
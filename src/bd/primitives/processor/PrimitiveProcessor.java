@@ -0,0 +1,245 @@
+package bd.primitives.processor;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.element.AnnotationMirror;
+import javax.lang.model.element.AnnotationValue;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.type.TypeMirror;
+import javax.tools.Diagnostic.Kind;
+
+import bd.basic.processor.BaseProcessor;
+
+
+/**
+ * Annotation processor that reads the @{@link bd.primitives.Primitive} annotations at compile
+ * time and generates a reflection-free {@link bd.primitives.PrimitiveRegistry} for each
+ * package that contains primitive nodes.
+ *
+ * <p>The generated class is named {@value #REGISTRY_NAME} and refers to the node factories
+ * generated by the Truffle DSL. Since these factories, and possibly the factories referenced
+ * by {@code extraChild}, are only available in a later processing round, elements with
+ * unresolved types are deferred until the types become available.
+ */
+@SupportedAnnotationTypes({PrimitiveProcessor.PRIMITIVE, PrimitiveProcessor.CONTAINER})
+public final class PrimitiveProcessor extends BaseProcessor {
+
+  static final String PRIMITIVE = "bd.primitives.Primitive";
+  static final String CONTAINER = "bd.primitives.Primitive.Container";
+
+  public static final String REGISTRY_NAME = "GeneratedPrimitives";
+
+  /** The primitives found so far, grouped by package. */
+  private final Map<String, List<String>> primitivesByPackage = new LinkedHashMap<>();
+
+  /** Qualified names of node classes that still refer to types not yet generated. */
+  private final Set<String> deferred = new LinkedHashSet<>();
+
+  /** Packages for which the registry was already generated. */
+  private final Set<String> generated = new HashSet<>();
+
+  @Override
+  public boolean process(final Set<? extends TypeElement> annotations,
+      final RoundEnvironment roundEnv) {
+    Set<TypeElement> nodes = new LinkedHashSet<>();
+    for (TypeElement annotation : annotations) {
+      for (Element e : roundEnv.getElementsAnnotatedWith(annotation)) {
+        if (e instanceof TypeElement) {
+          nodes.add((TypeElement) e);
+        }
+      }
+    }
+
+    for (String name : deferred) {
+      nodes.add(processingEnv.getElementUtils().getTypeElement(name));
+    }
+    deferred.clear();
+
+    Set<String> deferredPackages = new HashSet<>();
+    for (TypeElement node : nodes) {
+      if (!processNode(node)) {
+        deferred.add(node.getQualifiedName().toString());
+        deferredPackages.add(getPackage(node));
+      }
+    }
+
+    if (roundEnv.processingOver()) {
+      for (String name : deferred) {
+        processingEnv.getMessager().printMessage(Kind.ERROR,
+            "Could not resolve all types referenced by @Primitive",
+            processingEnv.getElementUtils().getTypeElement(name));
+      }
+      return false;
+    }
+
+    for (Entry<String, List<String>> e : primitivesByPackage.entrySet()) {
+      if (!deferredPackages.contains(e.getKey()) && !generated.contains(e.getKey())) {
+        generateRegistry(e.getKey(), e.getValue());
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Record the primitives of the given node class.
+   *
+   * @return false if the node refers to types that are not yet available
+   */
+  private boolean processNode(final TypeElement node) {
+    if (!hasAnnotation(node, GENERATE_NODE_FACTORY)) {
+      processingEnv.getMessager().printMessage(Kind.WARNING,
+          "@Primitive nodes are expected to have a NodeFactory (@GenerateNodeFactory). "
+              + "The node is not included in " + REGISTRY_NAME + ".",
+          node);
+      return true;
+    }
+
+    List<AnnotationMirror> primitives =
+        getRepeatable(node, PRIMITIVE, CONTAINER, new ArrayList<>());
+    List<String> creations = new ArrayList<>(primitives.size());
+    for (AnnotationMirror prim : primitives) {
+      String creation = createSpecializer(node, prim);
+      if (creation == null) {
+        return false;
+      }
+      creations.add(creation);
+    }
+
+    String pkg = getPackage(node);
+    if (generated.contains(pkg)) {
+      processingEnv.getMessager().printMessage(Kind.ERROR, REGISTRY_NAME + " for " + pkg
+          + " was already generated in an earlier processing round.", node);
+      return true;
+    }
+
+    primitivesByPackage.computeIfAbsent(pkg, k -> new ArrayList<>()).addAll(creations);
+    return true;
+  }
+
+  /**
+   * Create the Java expression that instantiates the specializer for a primitive.
+   *
+   * @return the expression, or null if some referenced type is not yet available
+   */
+  private String createSpecializer(final TypeElement node, final AnnotationMirror prim) {
+    TypeMirror specializer = getType(getValue(prim, "specializer"));
+    TypeMirror extraChild = getType(getValue(prim, "extraChild"));
+
+    if (specializer == null || extraChild == null) {
+      return null;
+    }
+
+    StringBuilder receivers = new StringBuilder();
+    for (AnnotationValue v : getList(getValue(prim, "receiverType"))) {
+      TypeMirror t = getType(v);
+      if (t == null) {
+        return null;
+      }
+      if (receivers.length() > 0) {
+        receivers.append(", ");
+      }
+      receivers.append(getName(t)).append(".class");
+    }
+
+    StringBuilder argNodes = new StringBuilder();
+    for (AnnotationValue v : getList(getValue(prim, "argNodes"))) {
+      AnnotationMirror argNode = (AnnotationMirror) v.getValue();
+      TypeMirror t = getType(getValue(argNode, "type"));
+      TypeMirror valueType = getType(getValue(argNode, "valueType"));
+      if (t == null || valueType == null) {
+        return null;
+      }
+      if (argNodes.length() > 0) {
+        argNodes.append(", ");
+      }
+      argNodes.append("new bd.primitives.GeneratedPrimitive.GeneratedArgNode(")
+              .append(getValue(argNode, "index").getValue()).append(", ")
+              .append(getName(t)).append(".class, ")
+              .append(getLiteral(argNode, "value")).append(", ")
+              .append(getName(valueType)).append(".class)");
+    }
+
+    String primitive = "new bd.primitives.GeneratedPrimitive("
+        + getLiteral(prim, "className") + ", "
+        + getLiteral(prim, "primitive") + ", "
+        + getLiteral(prim, "selector") + ", "
+        + getValue(prim, "inParser").getValue() + ", "
+        + "new Class<?>[] {" + receivers + "}, "
+        + getName(specializer) + ".class, "
+        + getName(extraChild) + ".class, "
+        + getValue(prim, "requiresArguments").getValue() + ", "
+        + getValue(prim, "disabled").getValue() + ", "
+        + getValue(prim, "noWrapper").getValue() + ", "
+        + getValue(prim, "classSide").getValue() + ", "
+        + getValue(prim, "pure").getValue() + ", "
+        + "new bd.primitives.Primitive.ArgNode[] {" + argNodes + "})";
+
+    String factory =
+        "(com.oracle.truffle.api.dsl.NodeFactory) " + getFactoryName(node) + ".getInstance()";
+
+    if ("bd.primitives.Specializer".equals(getName(specializer))) {
+      String extraChildFactory;
+      if ("bd.primitives.Primitive.NoChild".equals(getName(extraChild))) {
+        extraChildFactory = "null";
+      } else {
+        extraChildFactory = getName(extraChild) + ".getInstance()";
+      }
+      return "new bd.primitives.Specializer(" + primitive + ", " + factory + ", "
+          + extraChildFactory + ")";
+    }
+
+    return "new " + getName(specializer) + "(" + primitive + ", " + factory + ")";
+  }
+
+  private void generateRegistry(final String pkg, final List<String> creations) {
+    generated.add(pkg);
+    String name = pkg.isEmpty() ? REGISTRY_NAME : pkg + "." + REGISTRY_NAME;
+
+    try (PrintWriter w = new PrintWriter(
+        processingEnv.getFiler().createSourceFile(name).openWriter())) {
+      if (!pkg.isEmpty()) {
+        w.println("package " + pkg + ";");
+        w.println();
+      }
+      w.println("/**");
+      w.println(" * Registry of the primitives in this package.");
+      w.println(" * Generated by {@link " + PrimitiveProcessor.class.getName() + "}.");
+      w.println(" */");
+      w.println("@SuppressWarnings({\"unchecked\", \"rawtypes\", \"cast\"})");
+      w.println("public final class " + REGISTRY_NAME
+          + " implements bd.primitives.PrimitiveRegistry {");
+      w.println();
+      w.println("  public static final " + REGISTRY_NAME + " INSTANCE = new "
+          + REGISTRY_NAME + "();");
+      w.println();
+      w.println("  private " + REGISTRY_NAME + "() { }");
+      w.println();
+      w.println("  @Override");
+      w.println("  public <Context, ExprT, Id> void addSpecializers(");
+      w.println("      final java.util.List<bd.primitives.Specializer<Context, ExprT, Id>> "
+          + "list) {");
+      for (String c : creations) {
+        w.println("    list.add((bd.primitives.Specializer) " + c + ");");
+      }
+      w.println("  }");
+      w.println("}");
+    } catch (IOException e) {
+      processingEnv.getMessager().printMessage(Kind.ERROR,
+          "Failed to generate " + name + ": " + e.getMessage());
+    }
+    generateNativeImageProperties(name, Collections.singletonList(name));
+  }
+}
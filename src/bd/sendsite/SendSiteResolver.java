@@ -0,0 +1,232 @@
+package bd.sendsite;
+
+import java.util.Arrays;
+
+import com.oracle.truffle.api.nodes.Node;
+import com.oracle.truffle.api.source.SourceSection;
+
+import bd.basic.IdMap;
+import bd.basic.IdProvider;
+import bd.basic.ProgramDefinitionError;
+import bd.inlining.InlinableNodes;
+import bd.inlining.Inline;
+import bd.inlining.Inliner;
+import bd.inlining.InliningPolicy;
+import bd.inlining.ScopeBuilder;
+import bd.primitives.EagerSpecializers;
+import bd.primitives.Primitive;
+import bd.primitives.PrimitiveLoader;
+import bd.primitives.PrimitiveTable;
+import bd.primitives.Specializer;
+
+
+/**
+ * Resolves a send site in the parser to an inlined node, an eagerly specialized primitive, or
+ * a generic send, with a single lookup of the selector.
+ *
+ * <p>The resolver indexes the @{@link Inline} nodes of an {@link InlinableNodes} object and
+ * the @{@link Primitive}s of the {@link PrimitiveTable} of a {@link PrimitiveLoader} by
+ * selector. The decision has a fixed
+ * priority: if an inliner applies, the inlined node is used. Otherwise, if a primitive can be
+ * specialized in the parser, its specializer is used. Otherwise, the send is generic.
+ *
+ * <p>A resolver is immutable, and can be shared by all parser threads of a context. It takes
+ * the rewrites reported to the loader into account, see
+ * {@link PrimitiveLoader#reportRewrite(Object, SourceSection)}.
+ *
+ * <p>The resolver is in its own package, since it depends on both the primitives and the
+ * inlining diamond, which do not depend on each other.
+ *
+ * <p>Generic sends and eagerly specialized primitives do not allocate a {@link Resolution}.
+ * For generic sends, a single instance is used, and for primitives, the resolution of the
+ * specializer found last for the selector is reused.
+ *
+ * @param <Context> the type of the context object
+ * @param <ExprT> the root type of expressions used by the language
+ * @param <Id> the type of the identifiers used for mapping to primitives and inlinable nodes,
+ *          typically some form of interned string construct
+ */
+public final class SendSiteResolver<Context, ExprT extends Node, Id> {
+
+  /** The kind of a {@link Resolution}. */
+  public enum Kind {
+    /** The send was replaced by an inlined node, see {@link Resolution#getNode()}. */
+    INLINED,
+
+    /**
+     * The send can be specialized with a primitive, see {@link Resolution#getSpecializer()}.
+     */
+    EAGER_PRIMITIVE,
+
+    /** The send is a generic send. */
+    GENERIC
+  }
+
+  /**
+   * The decision for a send site.
+   *
+   * @param <Context> the type of the context object
+   * @param <ExprT> the root type of expressions used by the language
+   * @param <Id> the type of the identifiers
+   */
+  public static final class Resolution<Context, ExprT, Id> {
+    @SuppressWarnings("rawtypes") private static final Resolution GENERIC =
+        new Resolution<>(Kind.GENERIC, null, null);
+
+    private final Kind                            kind;
+    private final ExprT                           node;
+    private final Specializer<Context, ExprT, Id> specializer;
+
+    private Resolution(final Kind kind, final ExprT node,
+        final Specializer<Context, ExprT, Id> specializer) {
+      this.kind = kind;
+      this.node = node;
+      this.specializer = specializer;
+    }
+
+    public Kind getKind() {
+      return kind;
+    }
+
+    /** The inlined node, if the kind is {@link Kind#INLINED}, null otherwise. */
+    public ExprT getNode() {
+      return node;
+    }
+
+    /**
+     * The specializer to create the primitive node with, if the kind is
+     * {@link Kind#EAGER_PRIMITIVE}, null otherwise.
+     */
+    public Specializer<Context, ExprT, Id> getSpecializer() {
+      return specializer;
+    }
+  }
+
+  /** The inliner and the primitives registered for a selector. */
+  private static final class SendSite<Context, ExprT, Id> {
+    private Inliner                               inliner;
+    private EagerSpecializers<Context, ExprT, Id> primitives;
+
+    /**
+     * The resolution of the specializer found last, which is immutable, and reused if the
+     * same specializer is found again.
+     */
+    private volatile Resolution<Context, ExprT, Id> eager;
+
+    Resolution<Context, ExprT, Id> getEager(final Specializer<Context, ExprT, Id> s) {
+      Resolution<Context, ExprT, Id> r = eager;
+      if (r == null || r.specializer != s) {
+        r = new Resolution<>(Kind.EAGER_PRIMITIVE, null, s);
+        eager = r;
+      }
+      return r;
+    }
+  }
+
+  private final IdMap<Id, SendSite<Context, ExprT, Id>> sites;
+
+  private final PrimitiveLoader<Context, ExprT, Id> primitives;
+
+  /**
+   * Build the index of the inlinable nodes and primitives.
+   *
+   * @param ids the id provider to convert the selectors to identifiers, which needs to be the
+   *          one of the primitive table
+   * @param inlinableNodes the inlinable nodes
+   * @param primitives the loader of the primitives, which is initialized already
+   */
+  public SendSiteResolver(final IdProvider<Id> ids, final InlinableNodes<Id> inlinableNodes,
+      final PrimitiveLoader<Context, ExprT, Id> primitives) {
+    if (ids != primitives.getTable().getIdProvider()) {
+      throw new IllegalArgumentException(
+          "The primitive table was built with a different IdProvider");
+    }
+    this.primitives = primitives;
+    this.sites = new IdMap<>(ids);
+
+    for (Inliner inliner : inlinableNodes.getInliners()) {
+      getOrCreate(ids.getId(inliner.getSelector())).inliner = inliner;
+    }
+
+    for (EagerSpecializers<Context, ExprT, Id> s : primitives.getTable().getSelectors()) {
+      getOrCreate(ids.getId(s.getSelector())).primitives = s;
+    }
+    this.sites.freeze();
+  }
+
+  private SendSite<Context, ExprT, Id> getOrCreate(final Id selector) {
+    SendSite<Context, ExprT, Id> site = sites.get(selector);
+    if (site == null) {
+      site = new SendSite<>();
+      sites.put(selector, site);
+    }
+    return site;
+  }
+
+  /**
+   * Determine how a send site is to be represented.
+   *
+   * <p>The inliner for the selector is tried first, see
+   * {@link InlinableNodes#inline(Object, java.util.List, ScopeBuilder, SourceSection)}.
+   * Then, the primitives that can be specialized in the parser, see
+   * {@link PrimitiveLoader#getParserSpecializer(Object, Object[], SourceSection)}.
+   *
+   * @param <S> the type of the {@link ScopeBuilder}
+   *
+   * @param selector the selector of the send
+   * @param argNodes the argument nodes of the send, including the receiver
+   * @param builder used for providing context to the inlining operation
+   * @param source the source section of the send
+   * @return the decision, never null
+   * @throws ProgramDefinitionError in case the inlining would result in a structural violation
+   *           of program definition constraints
+   */
+  public <S extends ScopeBuilder<S>> Resolution<Context, ExprT, Id> resolve(final Id selector,
+      final ExprT[] argNodes, final S builder, final SourceSection source)
+      throws ProgramDefinitionError {
+    return resolve(selector, argNodes, builder, source, null);
+  }
+
+  /**
+   * Determine how a send site is to be represented, like
+   * {@link #resolve(Object, Node[], ScopeBuilder, SourceSection)}, but inline only if the
+   * given policy agrees.
+   *
+   * @param <S> the type of the {@link ScopeBuilder}
+   *
+   * @param selector the selector of the send
+   * @param argNodes the argument nodes of the send, including the receiver
+   * @param builder used for providing context to the inlining operation
+   * @param source the source section of the send
+   * @param policy decides whether to inline, or null to inline whenever possible
+   * @return the decision, never null
+   * @throws ProgramDefinitionError in case the inlining would result in a structural violation
+   *           of program definition constraints
+   */
+  @SuppressWarnings("unchecked")
+  public <S extends ScopeBuilder<S>> Resolution<Context, ExprT, Id> resolve(final Id selector,
+      final ExprT[] argNodes, final S builder, final SourceSection source,
+      final InliningPolicy policy) throws ProgramDefinitionError {
+    SendSite<Context, ExprT, Id> site = sites.get(selector);
+    if (site == null) {
+      return Resolution.GENERIC;
+    }
+
+    if (site.inliner != null) {
+      ExprT node = site.inliner.inline(Arrays.asList(argNodes), builder, source, policy);
+      if (node != null) {
+        return new Resolution<>(Kind.INLINED, node, null);
+      }
+    }
+
+    if (site.primitives != null && !primitives.isNonEager(selector, source)) {
+      Specializer<Context, ExprT, Id> specializer =
+          site.primitives.getParserSpecializer(argNodes);
+      if (specializer != null) {
+        return site.getEager(specializer);
+      }
+    }
+
+    return Resolution.GENERIC;
+  }
+}
@@ -6,4 +6,30 @@ package bd.settings;
  */
 public interface Settings {
   boolean dynamicMetricsEnabled();
+
+  /**
+   * Whether to count how often primitives are selected, rejected, and instantiated.
+   * See {@link bd.primitives.SpecializerStatistics}. Disabled by default.
+   */
+  default boolean primitiveStatisticsEnabled() {
+    return false;
+  }
+
+  /**
+   * The number of rewrites of eagerly specialized nodes at a single source location, after
+   * which the location is not specialized eagerly anymore. A value of 0 disables the tracking
+   * of rewrites, and is the default. See {@link bd.primitives.PrimitiveLoader#reportRewrite}.
+   */
+  default int eagerRewriteSiteThreshold() {
+    return 0;
+  }
+
+  /**
+   * The number of rewrites of eagerly specialized nodes for a selector, after which the
+   * selector is not specialized eagerly anymore. A value of 0 disables the tracking, and is
+   * the default.
+   */
+  default int eagerRewriteSelectorThreshold() {
+    return 0;
+  }
 }
@@ -3,26 +3,40 @@ package bd.settings;
 /**
  * VmSettings are determined based on Java properties. They are used to configure VM-wide
  * properties, for instance whether a tool is enabled or not.
+ *
+ * <p>In a native image, the settings are determined at image build time, see
+ * {@link bd.nativeimage.BlackDiamondsFeature}.
  */
 public class VmSettings {
+  /** The property naming the class that implements {@link Settings}. */
+  public static final String SETTINGS_PROPERTY = "bd.settings";
+
   public static final boolean DYNAMIC_METRICS;
+  public static final boolean PRIMITIVE_STATISTICS;
+
+  public static final int EAGER_REWRITE_SITE_THRESHOLD;
+  public static final int EAGER_REWRITE_SELECTOR_THRESHOLD;
 
   static {
     Settings s = getSettings();
 
     DYNAMIC_METRICS = s.dynamicMetricsEnabled();
+    PRIMITIVE_STATISTICS = s.primitiveStatisticsEnabled();
+
+    EAGER_REWRITE_SITE_THRESHOLD = s.eagerRewriteSiteThreshold();
+    EAGER_REWRITE_SELECTOR_THRESHOLD = s.eagerRewriteSelectorThreshold();
   }
 
   private static Settings getSettings() {
-    String className = System.getProperty("bd.settings");
+    String className = System.getProperty(SETTINGS_PROPERTY);
     if (className == null) {
       return new AllDisabled();
     }
 
     try {
       Class<?> clazz = Class.forName(className);
-      return (Settings) clazz.newInstance();
-    } catch (ClassNotFoundException | InstantiationException | IllegalAccessException e) {
+      return (Settings) clazz.getDeclaredConstructor().newInstance();
+    } catch (ReflectiveOperationException e) {
       // Checkstyle: stop
       System.err.println("[BlackDiamonds] Could not load settings class: " + className);
       e.printStackTrace();
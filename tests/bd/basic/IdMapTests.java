@@ -0,0 +1,77 @@
+package bd.basic;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import bd.testsetup.OrdinalStringId;
+import bd.testsetup.StringId;
+
+
+public class IdMapTests {
+
+  private void checkMap(final IdProvider<String> ids) {
+    IdMap<String, String> map = new IdMap<>(ids);
+
+    String a = ids.getId("a");
+    String b = ids.getId("b");
+    String c = ids.getId("c");
+
+    map.put(a, "A");
+    map.put(c, "C");
+
+    assertEquals("A", map.get(a));
+    assertNull(map.get(b));
+    assertEquals("C", map.get(c));
+
+    assertTrue(map.containsKey(a));
+    assertFalse(map.containsKey(b));
+
+    assertNull(map.get(ids.getId("d")));
+  }
+
+  @Test
+  public void testHashMap() {
+    checkMap(new StringId());
+  }
+
+  @Test
+  public void testOrdinals() {
+    checkMap(new OrdinalStringId());
+  }
+
+  @Test(expected = IllegalStateException.class)
+  public void testFrozen() {
+    IdMap<String, String> map = new IdMap<>(new StringId());
+    map.put("a", "A");
+    map.freeze();
+
+    assertTrue(map.isFrozen());
+    assertEquals("A", map.get("a"));
+    map.put("b", "B");
+  }
+
+  @Test
+  public void testNegativeOrdinalIsMiss() {
+    OrdinalIdProvider<String> ids = new OrdinalIdProvider<String>() {
+      @Override
+      public String getId(final String id) {
+        return id;
+      }
+
+      @Override
+      public int getOrdinal(final String id) {
+        return "a".equals(id) ? 0 : -1;
+      }
+    };
+
+    IdMap<String, String> map = new IdMap<>(ids);
+    map.put("a", "A");
+    assertEquals("A", map.get("a"));
+    assertNull(map.get("unknown"));
+    assertFalse(map.containsKey("unknown"));
+  }
+}
@@ -5,9 +5,11 @@ import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotEquals;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 import org.junit.Test;
@@ -17,7 +19,10 @@ import com.oracle.truffle.api.source.SourceSection;
 
 import bd.basic.ProgramDefinitionError;
 import bd.testsetup.AddNodeFactory;
+import bd.testsetup.BoolLiteral;
 import bd.testsetup.ExprNode;
+import bd.testsetup.GeneratedInliners;
+import bd.testsetup.IfTrueNode;
 import bd.testsetup.LambdaNode;
 import bd.testsetup.StringId;
 import bd.testsetup.ValueNode;
@@ -83,4 +88,159 @@ public class InliningTests {
 
     assertNull(n.inline("nonExisting", null, null, null));
   }
+
+  @Test
+  public void testGeneratedInliners() throws ProgramDefinitionError {
+    InlinableNodes<String> generated =
+        new InlinableNodes<>(new StringId(), GeneratedInliners.INSTANCE);
+
+    List<ExprNode> argNodes = new ArrayList<>();
+    LambdaNode arg = new LambdaNode();
+    argNodes.add(arg);
+
+    ValueNode value = (ValueNode) generated.inline("value", argNodes, null, source);
+    assertNotEquals(arg, value.inlined);
+    assertEquals(arg, value.original);
+    assertTrue(value.trueVal);
+    assertFalse(value.falseVal);
+    assertTrue(value.getSourceSection() == source);
+
+    ValueSpecializedNode valueSpec =
+        (ValueSpecializedNode) generated.inline("valueSpec", argNodes, null, source);
+    assertNotEquals(arg, valueSpec.inlined);
+    assertEquals(arg, valueSpec.getLambda());
+    assertTrue(valueSpec.getSourceSection() == source);
+
+    List<ExprNode> nonInlinable = new ArrayList<>();
+    nonInlinable.add(AddNodeFactory.create(null, null));
+    assertNull(generated.inline("value", nonInlinable, null, null));
+  }
+
+  @Test(expected = UnsupportedOperationException.class)
+  public void testInlinersAreImmutable() {
+    nodes.getInliners().clear();
+  }
+
+  @Test
+  public void testFoldWithConstantReceiver() throws ProgramDefinitionError {
+    List<ExprNode> argNodes = new ArrayList<>();
+    argNodes.add(new BoolLiteral(true));
+    argNodes.add(new LambdaNode());
+
+    ExprNode folded = nodes.inline("ifTrue:", argNodes, null, source);
+    assertTrue("only the inlined body is kept", folded instanceof LambdaNode);
+    assertNotEquals(argNodes.get(1), folded);
+    assertNull("the IfTrueNode was not created", folded.getParent());
+
+    argNodes.set(0, new BoolLiteral(false));
+    assertTrue(nodes.inline("ifTrue:", argNodes, null, source) instanceof IfTrueNode);
+
+    argNodes.set(0, new LambdaNode());
+    assertTrue("receiver is not constant",
+        nodes.inline("ifTrue:", argNodes, null, source) instanceof IfTrueNode);
+  }
+
+  @Test
+  public void testInliningBudget() throws ProgramDefinitionError {
+    InliningBudget budget = new InliningBudget(3, 2);
+
+    List<ExprNode> argNodes = new ArrayList<>();
+    argNodes.add(new LambdaNode());
+    argNodes.add(new LambdaNode());
+
+    ExprNode inner = nodes.inline("ifTrue:", argNodes, null, source, budget);
+    assertTrue(inner instanceof IfTrueNode);
+    assertEquals(1, budget.getInlinedNodes());
+
+    // the inner node was already counted
+    argNodes.set(1, new LambdaNode(inner));
+    ExprNode outer = nodes.inline("ifTrue:", argNodes, null, source, budget);
+    assertTrue(outer instanceof IfTrueNode);
+    assertEquals(2, budget.getInlinedNodes());
+
+    argNodes.set(1, new LambdaNode(outer));
+    assertNull("exceeds the nesting depth",
+        nodes.inline("ifTrue:", argNodes, null, source, budget));
+
+    argNodes.set(1, new LambdaNode(new LambdaNode(new LambdaNode())));
+    assertNull("exceeds the node budget",
+        nodes.inline("ifTrue:", argNodes, null, source, budget));
+    assertEquals(2, budget.getInlinedNodes());
+  }
+
+  @Test
+  public void testLazyInlining() throws ProgramDefinitionError {
+    List<ExprNode> argNodes = new ArrayList<>();
+    argNodes.add(new LambdaNode());
+    argNodes.add(new LambdaNode());
+
+    LazyInlining<ExprNode> lazy = nodes.inlineLazily("ifTrue:", argNodes, null, source);
+    assertNotNull(lazy);
+    assertFalse(lazy.isInlined());
+    assertSame(argNodes, lazy.getArgNodes());
+
+    ExprNode inlined = lazy.inline();
+    assertTrue(inlined instanceof IfTrueNode);
+    assertTrue(lazy.isInlined());
+    assertSame(inlined, lazy.inline());
+
+    List<ExprNode> nonInlinable = new ArrayList<>();
+    nonInlinable.add(new LambdaNode());
+    nonInlinable.add(AddNodeFactory.create(null, null));
+    assertNull(nodes.inlineLazily("ifTrue:", nonInlinable, null, source));
+    assertNull(nodes.inlineLazily("nonExisting", argNodes, null, source));
+  }
+
+  @Test
+  public void testLazyInliningAfterScopeWasClosed() throws ProgramDefinitionError {
+    TScopeBuilder builder = new TScopeBuilder();
+    List<String> method = builder.pushScope();
+    List<String> block = builder.pushScope();
+
+    List<ExprNode> argNodes = new ArrayList<>();
+    argNodes.add(new LambdaNode());
+    argNodes.add(new LambdaNode());
+    LazyInlining<ExprNode> lazy = nodes.inlineLazily("ifTrue:", argNodes, builder, source);
+
+    builder.popScope();
+    builder.popScope();
+
+    assertTrue(lazy.inline() instanceof IfTrueNode);
+    assertEquals(Arrays.asList("inlinedLocal"), block);
+    assertTrue(method.isEmpty());
+  }
+
+  @Test
+  public void testLazyInliningWithPolicy() {
+    InliningBudget budget = new InliningBudget(1, InliningBudget.DEFAULT_MAX_DEPTH);
+
+    List<ExprNode> argNodes = new ArrayList<>();
+    argNodes.add(new LambdaNode());
+    argNodes.add(new LambdaNode());
+    ExprNode placeholder = nodes.inlineLazily("ifTrue:", argNodes, null, source, budget,
+        lazy -> new LambdaNode());
+    assertNotNull(placeholder);
+    assertEquals(1, budget.getInlinedNodes());
+
+    argNodes.set(1, new LambdaNode());
+    assertNull("exceeds the node budget", nodes.inlineLazily("ifTrue:", argNodes, null,
+        source, budget, lazy -> new LambdaNode()));
+    assertEquals(1, budget.getInlinedNodes());
+  }
+
+  @Test
+  public void testIsInlinedArg() {
+    Inliner ifInliner = null;
+    for (Inliner i : nodes.getInliners()) {
+      if (i.getSelector().equals("if")) {
+        ifInliner = i;
+      }
+    }
+
+    assertNotNull(ifInliner);
+    assertFalse(ifInliner.isInlinedArg(0));
+    assertTrue(ifInliner.isInlinedArg(1));
+    assertTrue(ifInliner.isInlinedArg(2));
+    assertFalse(ifInliner.isInlinedArg(3));
+  }
 }
@@ -7,6 +7,7 @@ import com.oracle.truffle.api.dsl.NodeFactory;
 import com.oracle.truffle.api.nodes.Node;
 
 import bd.testsetup.IfNodeFactory;
+import bd.testsetup.IfTrueNode;
 import bd.testsetup.ValueNode;
 import bd.testsetup.ValueSpecializedNodeFactory;
 
@@ -17,6 +18,7 @@ class Nodes {
     List<Class<? extends Node>> nodes = new ArrayList<>();
 
     nodes.add(ValueNode.class);
+    nodes.add(IfTrueNode.class);
 
     return nodes;
   }
@@ -0,0 +1,77 @@
+package bd.inlining;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import bd.basic.nodes.DummyParent;
+import bd.inlining.TVariable.Read;
+import bd.inlining.TVariable.Write;
+import bd.testsetup.IntLiteral;
+
+
+public class ScopeAdaptationTests {
+
+  @Test
+  public void testAdaptToCopiedVariables() {
+    TVariable a = new TVariable("a");
+    TVariable b = new TVariable("b");
+    TVariable aCopy = a.copy();
+
+    TScope outer = new TScope(null, b);
+    TScope inner = new TScope(outer, aCopy);
+
+    TSequence body = new TSequence(new Write(a, 0, new IntLiteral(1)), new Read(a, 0),
+        new Read(b, 1));
+    TSequence adapted = ScopeAdaptationVisitor.adapt(body, inner, 0, false, null);
+
+    assertNotSame(body, adapted);
+    assertSame("found by equals()", aCopy, ((Write) adapted.exprs[0]).getVariable());
+    assertSame(aCopy, ((Read) adapted.exprs[1]).getVariable());
+
+    Read readB = (Read) adapted.exprs[2];
+    assertSame("found by identity", b, readB.getVariable());
+    assertEquals(1, readB.getContextLevel());
+
+    assertSame("the original is unchanged", a, ((Read) body.exprs[1]).getVariable());
+  }
+
+  @Test
+  public void testInnermostVariableIsUsed() {
+    TVariable a = new TVariable("a");
+    TVariable aCopy = a.copy();
+    TScope inner = new TScope(new TScope(null, a), aCopy);
+
+    TSequence adapted =
+        ScopeAdaptationVisitor.adapt(new TSequence(new Read(a, 1)), inner, 0, false, null);
+
+    Read read = (Read) adapted.exprs[0];
+    assertSame(aCopy, read.getVariable());
+    assertEquals(0, read.getContextLevel());
+  }
+
+  @Test
+  public void testAdaptedBodyHasRootNode() {
+    TVariable a = new TVariable("a");
+    TScope scope = new TScope(null, a);
+
+    TSequence adapted =
+        ScopeAdaptationVisitor.adapt(new TSequence(new Read(a, 0)), scope, 0, false, null);
+    assertTrue(adapted.getParent() instanceof DummyParent);
+    assertTrue(adapted.exprs[0].getRootNode() instanceof DummyParent);
+  }
+
+  @Test
+  public void testReplaceRoot() {
+    TVariable a = new TVariable("a");
+    TVariable aCopy = a.copy();
+    TScope scope = new TScope(null, aCopy);
+
+    Read adapted = ScopeAdaptationVisitor.adapt(new Read(a, 0), scope, 0, false, null);
+    assertSame(aCopy, adapted.getVariable());
+    assertTrue(adapted.getParent() instanceof DummyParent);
+  }
+}
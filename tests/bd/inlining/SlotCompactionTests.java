@@ -0,0 +1,61 @@
+package bd.inlining;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+import java.util.Arrays;
+import java.util.Map;
+
+import org.junit.Test;
+
+import bd.inlining.TSequence.Loop;
+import bd.inlining.TVariable.Read;
+import bd.inlining.TVariable.Write;
+import bd.testsetup.IntLiteral;
+
+
+public class SlotCompactionTests {
+
+  @Test
+  public void testSequentialLoopsShareSlots() {
+    TVariable a = new TVariable("a");
+    TVariable b = new TVariable("b");
+    TVariable c = new TVariable("c");
+    TVariable d = new TVariable("d");
+
+    IntLiteral value = new IntLiteral(1);
+    Loop loop1 = new Loop(new Write(a, 0, new IntLiteral(0)), new Read(a, 0));
+    Loop loop2 = new Loop(new Read(b, 0), new Write(b, 0, value));
+    TSequence body = new TSequence(
+        new Write(c, 0, new IntLiteral(2)), loop1, loop2, new Read(c, 0),
+        new Read(d, 1));
+
+    Map<Variable<?>, Variable<?>> merged =
+        SlotCompaction.compact(body, Arrays.asList(a, b, c, d));
+
+    assertEquals("c is live during both loops, d is accessed from a nested scope", 1,
+        merged.size());
+    assertSame(a, merged.get(b));
+
+    assertSame(a, ((Read) loop2.exprs[0]).getVariable());
+    Write write = (Write) loop2.exprs[1];
+    assertSame(a, write.getVariable());
+    assertSame(value, write.getWrittenValue());
+
+    assertSame(a, ((Read) loop1.exprs[1]).getVariable());
+    assertSame(c, ((Read) body.exprs[3]).getVariable());
+  }
+
+  @Test
+  public void testValueCarriedAcrossIterations() {
+    TVariable a = new TVariable("a");
+    TVariable b = new TVariable("b");
+
+    // a is read before it is written in the loop, and thus, live in the whole loop
+    TSequence body = new TSequence(new Loop(new Read(a, 0),
+        new Write(b, 0, new IntLiteral(1)), new Read(b, 0),
+        new Write(a, 0, new IntLiteral(2))));
+
+    assertEquals(0, SlotCompaction.compact(body, Arrays.asList(a, b)).size());
+  }
+}
@@ -0,0 +1,106 @@
+package bd.inlining;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import org.junit.Test;
+
+import bd.testsetup.AddNodeFactory;
+import bd.testsetup.ExprNode;
+import bd.testsetup.IntLiteral;
+
+
+public class SplitCacheTests {
+
+  @Test
+  public void testReuseEquivalentSplit() {
+    SplitCache<String, ExprNode> cache = new SplitCache<>(10);
+
+    ExprNode split = cache.getOrCreate("m", Integer.class, () -> new IntLiteral(1));
+    assertSame(split, cache.getOrCreate("m", Integer.class, () -> new IntLiteral(2)));
+    assertNotSame(split, cache.getOrCreate("m", Double.class, () -> new IntLiteral(3)));
+    assertNotSame(split, cache.getOrCreate("n", Integer.class, () -> new IntLiteral(4)));
+
+    assertEquals(3, cache.size());
+    assertEquals(3, cache.getNodeCount());
+  }
+
+  @Test
+  public void testLeastRecentlyUsedIsEvicted() {
+    SplitCache<String, ExprNode> cache = new SplitCache<>(2);
+
+    ExprNode a = cache.getOrCreate("a", null, () -> new IntLiteral(1));
+    ExprNode b = cache.getOrCreate("b", null, () -> new IntLiteral(2));
+
+    // use a, so that b is the least recently used split
+    assertSame(a, cache.getOrCreate("a", null, () -> new IntLiteral(3)));
+    cache.getOrCreate("c", null, () -> new IntLiteral(4));
+
+    assertEquals(2, cache.size());
+    assertEquals(1, cache.getEvictions());
+    assertSame(a, cache.getOrCreate("a", null, () -> new IntLiteral(5)));
+    assertNotSame(b, cache.getOrCreate("b", null, () -> new IntLiteral(6)));
+  }
+
+  @Test
+  public void testSplitExceedingBudget() {
+    SplitCache<String, ExprNode> cache = new SplitCache<>(2);
+
+    assertNull(cache.getOrCreate("m", null,
+        () -> AddNodeFactory.create(new IntLiteral(1), new IntLiteral(2))));
+    assertEquals(0, cache.size());
+    assertEquals("the rejected split counts as one node", 1, cache.getNodeCount());
+
+    assertNull("the rejected split is not created again", cache.getOrCreate("m", null,
+        () -> {
+          throw new AssertionError("should not be created");
+        }));
+
+    assertNull("rejected based on the estimate", cache.getOrCreate("n", null, 3,
+        () -> {
+          throw new AssertionError("should not be created");
+        }));
+
+    cache.invalidate("m");
+    assertNotNull(cache.getOrCreate("m", null, () -> new IntLiteral(1)));
+  }
+
+  @Test
+  public void testInvalidate() {
+    SplitCache<String, ExprNode> cache = new SplitCache<>(10);
+    cache.getOrCreate("m", Integer.class, () -> new IntLiteral(1));
+    cache.getOrCreate("m", Double.class, () -> new IntLiteral(2));
+    cache.getOrCreate("n", null, () -> new IntLiteral(3));
+
+    cache.invalidate("m");
+    assertEquals(1, cache.size());
+    assertEquals(1, cache.getNodeCount());
+  }
+
+  @Test
+  public void testRejectedSplitsAreEvicted() {
+    SplitCache<String, ExprNode> cache = new SplitCache<>(2);
+    cache.getOrCreate("a", null, 3, () -> new IntLiteral(1));
+    cache.getOrCreate("b", null, 3, () -> new IntLiteral(2));
+    cache.getOrCreate("c", null, 3, () -> new IntLiteral(3));
+
+    assertEquals(2, cache.getNodeCount());
+    assertEquals(1, cache.getEvictions());
+  }
+
+  @Test
+  public void testInvalidateWhileCreating() {
+    SplitCache<String, ExprNode> cache = new SplitCache<>(10);
+
+    assertNull(cache.getOrCreate("m", null, () -> {
+      cache.invalidate("m");
+      return new IntLiteral(1);
+    }));
+    assertEquals(0, cache.size());
+
+    assertNotNull(cache.getOrCreate("m", null, () -> new IntLiteral(2)));
+  }
+}
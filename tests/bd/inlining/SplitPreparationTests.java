@@ -0,0 +1,106 @@
+package bd.inlining;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+import bd.basic.nodes.DummyParent;
+import bd.testsetup.ExprNode;
+import bd.testsetup.IntLiteral;
+
+
+public class SplitPreparationTests {
+
+  @Test
+  public void testSplitIsPublishedWhenReady() {
+    List<Runnable> tasks = new ArrayList<>();
+    IntLiteral node = new IntLiteral(1);
+
+    SplitPreparation<ExprNode> p = SplitPreparation.prepare("m", tasks::add, () -> node);
+    assertFalse(p.isReady());
+    assertTrue(p.getNotReady().isValid());
+    assertNull(p.getSplitOrNull());
+
+    tasks.get(0).run();
+    assertTrue(p.isReady());
+    assertFalse(p.getNotReady().isValid());
+    assertSame(node, p.getSplitOrNull());
+  }
+
+  @Test
+  public void testFailedSplit() {
+    IllegalStateException e = new IllegalStateException();
+    SplitPreparation<ExprNode> p = SplitPreparation.prepare("m", Runnable::run, () -> {
+      throw e;
+    });
+
+    assertFalse(p.isReady());
+    assertNull(p.getSplitOrNull());
+    assertSame(e, p.getFailure());
+  }
+
+  @Test
+  public void testFailedSplitWithError() {
+    StackOverflowError e = new StackOverflowError();
+    SplitPreparation<ExprNode> p = SplitPreparation.prepare("m", Runnable::run, () -> {
+      throw e;
+    });
+
+    assertFalse(p.isReady());
+    assertSame(e, p.getFailure());
+  }
+
+  @Test
+  public void testInstall() {
+    List<Runnable> tasks = new ArrayList<>();
+    IntLiteral generic = new IntLiteral(1);
+    IntLiteral split = new IntLiteral(2);
+    DummyParent parent = new DummyParent(null, generic);
+
+    SplitPreparation<ExprNode> p = SplitPreparation.prepare("m", tasks::add, () -> split);
+    assertNull(p.install(generic));
+    assertSame(generic, parent.child);
+
+    tasks.get(0).run();
+    assertSame(split, p.install(generic));
+    assertSame(split, parent.child);
+
+    assertSame("installing again does not replace anything", split, p.install(generic));
+    assertSame(split, parent.child);
+  }
+
+  @Test
+  public void testInvalidatedSplitIsNotInstalled() {
+    IntLiteral generic = new IntLiteral(1);
+    DummyParent parent = new DummyParent(null, generic);
+
+    SplitPreparation<ExprNode> p =
+        SplitPreparation.prepare("m", Runnable::run, () -> new IntLiteral(2));
+    assertTrue(p.getValid().isValid());
+
+    p.invalidate();
+    assertFalse(p.getValid().isValid());
+    assertNull(p.getSplitOrNull());
+    assertNull(p.install(generic));
+    assertSame(generic, parent.child);
+  }
+
+  @Test
+  public void testRewrittenGenericIsNotReplaced() {
+    IntLiteral generic = new IntLiteral(1);
+    IntLiteral rewritten = new IntLiteral(2);
+    DummyParent parent = new DummyParent(null, generic);
+    generic.replace(rewritten);
+
+    SplitPreparation<ExprNode> p =
+        SplitPreparation.prepare("m", Runnable::run, () -> new IntLiteral(3));
+    assertNull(p.install(generic));
+    assertSame(rewritten, parent.child);
+  }
+}
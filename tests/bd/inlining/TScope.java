@@ -2,15 +2,27 @@ package bd.inlining;
 
 public class TScope implements Scope<TScope, Void> {
 
+  private final TScope      outer;
+  private final TVariable[] variables;
+
+  public TScope() {
+    this(null);
+  }
+
+  public TScope(final TScope outer, final TVariable... variables) {
+    this.outer = outer;
+    this.variables = variables;
+  }
+
   @Override
   @SuppressWarnings("unchecked")
-  public Variable<?>[] getVariables() {
-    return null;
+  public TVariable[] getVariables() {
+    return variables;
   }
 
   @Override
   public TScope getOuterScopeOrNull() {
-    return null;
+    return outer;
   }
 
   @Override
@@ -20,6 +32,6 @@ public class TScope implements Scope<TScope, Void> {
 
   @Override
   public String getName() {
-    return null;
+    return "TScope";
   }
 }
@@ -1,5 +1,9 @@
 package bd.inlining;
 
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+
 import com.oracle.truffle.api.source.SourceSection;
 
 import bd.basic.ProgramDefinitionError;
@@ -8,9 +12,46 @@ import bd.inlining.nodes.Inlinable;
 
 public class TScopeBuilder implements ScopeBuilder<TScopeBuilder> {
 
+  /** The names of the variables of the open scopes, innermost first. */
+  private final ArrayDeque<List<String>> scopes;
+
+  public TScopeBuilder() {
+    this.scopes = new ArrayDeque<>();
+  }
+
+  private TScopeBuilder(final List<String> scope) {
+    this();
+    scopes.push(scope);
+  }
+
+  public List<String> pushScope() {
+    List<String> scope = new ArrayList<>();
+    scopes.push(scope);
+    return scope;
+  }
+
+  public void popScope() {
+    scopes.pop();
+  }
+
+  public void addLocal(final String name) {
+    if (scopes.isEmpty()) {
+      throw new IllegalStateException("No scope is open for " + name);
+    }
+    scopes.peek().add(name);
+  }
+
   @Override
   public Variable<?> introduceTempForInlinedVersion(final Inlinable<TScopeBuilder> node,
       final SourceSection source) throws ProgramDefinitionError {
     return null;
   }
+
+  @Override
+  public TScopeBuilder snapshot() {
+    if (scopes.isEmpty()) {
+      return this;
+    }
+    return new TScopeBuilder(scopes.peek());
+  }
 }
@@ -0,0 +1,27 @@
+package bd.inlining;
+
+import com.oracle.truffle.api.frame.VirtualFrame;
+
+import bd.inlining.nodes.Repeating;
+import bd.testsetup.ExprNode;
+
+
+public class TSequence extends ExprNode {
+
+  @Children public final ExprNode[] exprs;
+
+  public TSequence(final ExprNode... exprs) {
+    this.exprs = exprs;
+  }
+
+  @Override
+  public Object executeGeneric(final VirtualFrame frame) {
+    return null;
+  }
+
+  public static final class Loop extends TSequence implements Repeating {
+    public Loop(final ExprNode... exprs) {
+      super(exprs);
+    }
+  }
+}
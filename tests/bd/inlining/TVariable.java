@@ -0,0 +1,134 @@
+package bd.inlining;
+
+import com.oracle.truffle.api.frame.VirtualFrame;
+import com.oracle.truffle.api.nodes.Node;
+import com.oracle.truffle.api.source.SourceSection;
+
+import bd.inlining.nodes.ScopeReference;
+import bd.inlining.nodes.VariableAccess;
+import bd.testsetup.ExprNode;
+
+
+public class TVariable implements Variable<ExprNode> {
+
+  private final String name;
+
+  /** The variable this one is a copy of, or this variable itself. */
+  private final TVariable original;
+
+  public TVariable(final String name) {
+    this.name = name;
+    this.original = this;
+  }
+
+  private TVariable(final TVariable original) {
+    this.name = original.name;
+    this.original = original;
+  }
+
+  /** Create a copy, which is equal to this variable, as for instance for a split scope. */
+  public TVariable copy() {
+    return new TVariable(original);
+  }
+
+  @Override
+  public boolean equals(final Object o) {
+    return o instanceof TVariable && ((TVariable) o).original == original;
+  }
+
+  @Override
+  public int hashCode() {
+    return System.identityHashCode(original);
+  }
+
+  @Override
+  public ExprNode getReadNode(final int contextLevel, final SourceSection source) {
+    return new Read(this, contextLevel);
+  }
+
+  @Override
+  public ExprNode getWriteNode(final int contextLevel, final ExprNode valueExpr,
+      final SourceSection source) {
+    return new Write(this, contextLevel, valueExpr);
+  }
+
+  @Override
+  public String toString() {
+    return "TVariable(" + name + ")";
+  }
+
+  public static final class Read extends ExprNode
+      implements VariableAccess, ScopeReference {
+    private final TVariable var;
+    private final int       contextLevel;
+
+    public Read(final TVariable var, final int contextLevel) {
+      this.var = var;
+      this.contextLevel = contextLevel;
+    }
+
+    @Override
+    public TVariable getVariable() {
+      return var;
+    }
+
+    @Override
+    public int getContextLevel() {
+      return contextLevel;
+    }
+
+    @Override
+    public Node getWrittenValue() {
+      return null;
+    }
+
+    @Override
+    public void replaceAfterScopeChange(final ScopeAdaptationVisitor visitor) {
+      visitor.updateRead(var, this, contextLevel);
+    }
+
+    @Override
+    public Object executeGeneric(final VirtualFrame frame) {
+      return null;
+    }
+  }
+
+  public static final class Write extends ExprNode
+      implements VariableAccess, ScopeReference {
+    private final TVariable var;
+    private final int       contextLevel;
+
+    @Child public ExprNode value;
+
+    public Write(final TVariable var, final int contextLevel, final ExprNode value) {
+      this.var = var;
+      this.contextLevel = contextLevel;
+      this.value = value;
+    }
+
+    @Override
+    public TVariable getVariable() {
+      return var;
+    }
+
+    @Override
+    public int getContextLevel() {
+      return contextLevel;
+    }
+
+    @Override
+    public Node getWrittenValue() {
+      return value;
+    }
+
+    @Override
+    public void replaceAfterScopeChange(final ScopeAdaptationVisitor visitor) {
+      visitor.updateWrite(var, this, value, contextLevel);
+    }
+
+    @Override
+    public Object executeGeneric(final VirtualFrame frame) {
+      return null;
+    }
+  }
+}
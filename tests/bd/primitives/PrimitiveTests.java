@@ -4,19 +4,39 @@ import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
 import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
 
 import org.junit.Test;
 
+import com.oracle.truffle.api.dsl.NodeFactory;
 import com.oracle.truffle.api.nodes.Node;
+import com.oracle.truffle.api.nodes.UnexpectedResultException;
+import com.oracle.truffle.api.source.Source;
+import com.oracle.truffle.api.source.SourceSection;
 
+import bd.primitives.nodes.EagerPrimitiveExecutor;
+import bd.primitives.nodes.PreevaluatedExpression;
 import bd.testsetup.AbsNode;
+import bd.testsetup.AbsNodeFactory;
 import bd.testsetup.AddAbsNode;
+import bd.testsetup.AddDoubleNodeFactory;
 import bd.testsetup.AddNodeFactory;
+import bd.testsetup.BoolLiteral;
 import bd.testsetup.ExprNode;
+import bd.testsetup.GeneratedPrimitives;
+import bd.testsetup.IncNode;
+import bd.testsetup.IntLiteral;
 import bd.testsetup.LangContext;
+import bd.testsetup.ValueLiteral;
 
 
 public class PrimitiveTests {
@@ -98,4 +118,278 @@ public class PrimitiveTests {
     assertTrue("Match, because int as arg",
         s.matches(new Object[] {42}, new ExprNode[2]));
   }
+
+  @Test
+  public void testGeneratedRegistry() {
+    List<Specializer<LangContext, ExprNode, String>> generated = new ArrayList<>();
+    PrimitiveLoader.add(generated, GeneratedPrimitives.INSTANCE);
+
+    Map<String, Specializer<LangContext, ExprNode, String>> byName = new HashMap<>();
+    for (Specializer<LangContext, ExprNode, String> s : generated) {
+      byName.put(s.getName(), s);
+    }
+
+    assertEquals(7, byName.size());
+
+    Specializer<LangContext, ExprNode, String> add = byName.get("AddNodeFactory");
+    assertEquals("+", add.getPrimitive().selector());
+    assertEquals("Int", add.getPrimitive().className());
+    assertEquals(Integer.class, add.getPrimitive().receiverType()[0]);
+    assertFalse(add.matches(new Object[] {0.55}, new ExprNode[2]));
+
+    assertTrue(byName.get("AddWithSpecializerNodeFactory").matches(
+        new Object[] {0.55}, new ExprNode[2]));
+
+    ExprNode n = byName.get("AddAbsNodeFactory").create(null, new ExprNode[1], null, true,
+        null);
+    assertTrue(n instanceof AddAbsNode);
+    assertTrue(n.getChildren().iterator().next() instanceof AbsNode);
+  }
+
+  @Test
+  public void testMultipleSpecializersForSelector() {
+    Specializer<LangContext, ExprNode, String> s =
+        ps.getEagerSpecializer("+", new Object[] {42}, new ExprNode[2]);
+    assertEquals("AddNodeFactory", s.getName());
+
+    s = ps.getEagerSpecializer("+", new Object[] {0.55}, new ExprNode[2]);
+    assertEquals("AddDoubleNodeFactory", s.getName());
+
+    s = ps.getEagerSpecializer("+", new Object[] {42}, new ExprNode[2]);
+    assertEquals("AddNodeFactory", s.getName());
+
+    assertNull(ps.getEagerSpecializer("+", new Object[] {"str"}, new ExprNode[2]));
+
+    // the first one is used in the parser
+    s = ps.getParserSpecializer("+", new ExprNode[2]);
+    assertEquals("AddNodeFactory", s.getName());
+  }
+
+  @Test
+  public void testAcceptsReceiver() {
+    Specializer<LangContext, ExprNode, String> s = ps.getEagerSpecializer("+", null, null);
+    assertTrue(s.acceptsReceiver(Integer.class));
+    assertFalse(s.acceptsReceiver(Double.class));
+    assertFalse(s.acceptsReceiver(Number.class));
+
+    // repeated checks use the cached result
+    assertTrue(s.acceptsReceiver(Integer.class));
+    assertFalse("null receiver does not match", s.matches(new Object[] {null}, null));
+
+    Specializer<LangContext, ExprNode, String> abs = ps.getEagerSpecializer("abs", null, null);
+    assertTrue("no receiver constraints", abs.acceptsReceiver(Double.class));
+  }
+
+  @Test
+  public void testSharedTable() {
+    Primitives other = new Primitives(ps.getTable());
+    assertSame(ps.getTable(), other.getTable());
+    assertSame("ids need to be shared", ps.getTable().getIdProvider(), other.ids);
+
+    assertSame(ps.getEagerSpecializer("+", null, null),
+        other.getEagerSpecializer("+", null, null));
+    assertSame(ps.getParserSpecializer("abs", null), other.getParserSpecializer("abs", null));
+  }
+
+  @Test(expected = UnsupportedOperationException.class)
+  public void testTableIsImmutable() {
+    ps.getTable().getSpecializers().clear();
+  }
+
+  @Test
+  public void testLazyRegistration() {
+    List<NodeFactory<? extends ExprNode>> factories = new ArrayList<>();
+    factories.add(AddNodeFactory.getInstance());
+    factories.add(AddDoubleNodeFactory.getInstance());
+    factories.add(AbsNodeFactory.getInstance());
+
+    Primitives lazy = new Primitives(factories);
+    assertTrue(lazy.registered.isEmpty());
+
+    Specializer<LangContext, ExprNode, String> s =
+        lazy.getEagerSpecializer("+", new Object[] {0.55}, new ExprNode[2]);
+    assertEquals("AddDoubleNodeFactory", s.getName());
+    assertTrue("lookups do not register primitives", lazy.registered.isEmpty());
+
+    lazy.registerPrimitives("Double");
+    assertEquals(1, lazy.registered.size());
+    assertSame("specializers are created only once", s, lazy.registered.get(0));
+
+    lazy.registerPrimitives("Unknown");
+    assertEquals(1, lazy.registered.size());
+  }
+
+  @Test
+  public void testStatisticsDisabledByDefault() {
+    assertNull(ps.getEagerSpecializer("+", null, null).getStatistics());
+  }
+
+  @Test
+  public void testSpecializerStatistics() {
+    SpecializerStatistics stats = new SpecializerStatistics();
+    stats.recordParserSelection();
+    stats.recordEagerSelection();
+    stats.recordEagerSelection();
+    stats.recordCreation();
+
+    stats.recordRejection(0.55);
+    stats.recordRejection("str");
+    stats.recordRejection("str");
+    stats.recordRejection(null);
+
+    assertEquals(1, stats.getParserSelections());
+    assertEquals(2, stats.getEagerSelections());
+    assertEquals(1, stats.getCreatedNodes());
+    assertEquals(4, stats.getRejections());
+
+    Iterator<Map.Entry<Class<?>, Long>> receivers =
+        stats.getRejectedReceivers().entrySet().iterator();
+    Map.Entry<Class<?>, Long> first = receivers.next();
+    assertEquals(String.class, first.getKey());
+    assertEquals(2L, (long) first.getValue());
+    assertEquals(Double.class, receivers.next().getKey());
+    assertFalse(receivers.hasNext());
+  }
+
+  @Test
+  public void testRewritesNotTrackedByDefault() {
+    for (int i = 0; i < 10; i += 1) {
+      ps.reportRewrite("+", null);
+    }
+    assertNotNull(ps.getEagerSpecializer("+", null, null, null));
+  }
+
+  @Test
+  public void testEagerRewrites() {
+    Source src = Source.newBuilder("x", "1 + 2\n3 + 4", "test").mimeType("x/test").build();
+    SourceSection site = src.createSection(1);
+    SourceSection other = src.createSection(2);
+
+    EagerRewrites<String> rewrites = new EagerRewrites<>(2, 3);
+    assertFalse(rewrites.isNonEager("+", site));
+
+    rewrites.recordRewrite("+", site);
+    assertFalse(rewrites.isNonEager("+", site));
+
+    rewrites.recordRewrite("+", site);
+    assertTrue("site reached threshold", rewrites.isNonEager("+", site));
+    assertFalse(rewrites.isNonEager("+", other));
+    assertFalse(rewrites.isNonEager("+", null));
+
+    rewrites.recordRewrite("+", other);
+    assertTrue("selector reached threshold", rewrites.isNonEager("+", null));
+    assertTrue(rewrites.isNonEager("+", other));
+    assertFalse(rewrites.isNonEager("-", other));
+
+    Source reparsed =
+        Source.newBuilder("x", "1 + 2\n3 + 4", "test").mimeType("x/test").build();
+    assertTrue("sites are identified by their coordinates",
+        rewrites.isNonEager("-", reparsed.createSection(1)));
+  }
+
+  @Test
+  public void testArity() {
+    assertEquals(2, ps.getEagerSpecializer("+", null, null).getArity());
+    assertEquals(1, ps.getEagerSpecializer("abs", null, null).getArity());
+    assertEquals(1, ps.getEagerSpecializer("addAbs", null, null).getArity());
+  }
+
+  @Test
+  public void testArityBasedPreevaluation() {
+    PreevaluatedExpression e = (frame, args) -> Arrays.asList(args);
+
+    assertEquals(Arrays.asList(), e.doPreNullary(null));
+    assertEquals(Arrays.asList(1), e.doPreUnary(null, 1));
+    assertEquals(Arrays.asList(1, 2), e.doPreBinary(null, 1, 2));
+    assertEquals(Arrays.asList(1, 2, 3), e.doPreTernary(null, 1, 2, 3));
+  }
+
+  @Test
+  public void testTypedPreevaluation() throws UnexpectedResultException {
+    PreevaluatedExpression e = (frame, args) -> args[0];
+
+    assertEquals(42L, e.doPreUnaryLong(null, 42L));
+    assertEquals(0.5, e.doPreBinaryDouble(null, 0.5, 1), 0.0);
+    assertTrue(e.doPreEvaluatedBoolean(null, new Object[] {true}));
+    assertTrue(e.doPreTernaryBoolean(null, true, 1, 2));
+
+    PreevaluatedExpression constant = (frame, args) -> 7L;
+    assertEquals(7L, constant.doPreNullaryLong(null));
+
+    try {
+      e.doPreBinaryLong(null, "str", 1);
+      fail("expected UnexpectedResultException");
+    } catch (UnexpectedResultException ex) {
+      assertEquals("str", ex.getResult());
+    }
+  }
+
+  @Test
+  public void testEagerPrimitiveExecutor() {
+    List<Object[]> rewrites = new ArrayList<>();
+    EagerPrimitiveExecutor<IncNode> executor = new EagerPrimitiveExecutor<>(new IncNode(),
+        (frame, args) -> {
+          rewrites.add(args);
+          return "generic";
+        });
+
+    assertEquals(2, executor.executeUnary(null, 1));
+    assertEquals(3, executor.executeEvaluated(null, new Object[] {2}));
+    assertTrue(rewrites.isEmpty());
+
+    assertEquals("generic", executor.executeUnary(null, "str"));
+    assertEquals(1, rewrites.size());
+    assertEquals("str", rewrites.get(0)[0]);
+
+    assertEquals("the handler did not replace the executor, and is used again", "generic",
+        executor.executeBinary(null, 1.5, 2));
+    assertEquals(2, rewrites.size());
+  }
+
+  @Test
+  public void testArgNodePatterns() {
+    ExprNode x = new IntLiteral(5);
+    ExprNode one = new IntLiteral(1);
+    ExprNode two = new IntLiteral(2);
+
+    Specializer<LangContext, ExprNode, String> s =
+        ps.getParserSpecializer("+", new ExprNode[] {x, one});
+    assertEquals("IncrementNodeFactory", s.getName());
+    assertTrue(s.hasArgNodePatterns());
+
+    s = ps.getParserSpecializer("+", new ExprNode[] {x, two});
+    assertEquals("AddNodeFactory", s.getName());
+
+    s = ps.getParserSpecializer("+", new ExprNode[] {x, new IncNode()});
+    assertEquals("AddNodeFactory", s.getName());
+
+    s = ps.getParserSpecializer("+", new ExprNode[] {x, new ValueLiteral(1L)});
+    assertEquals("the pattern is for Integer values", "AddNodeFactory", s.getName());
+
+    s = ps.getParserSpecializer("+", new ExprNode[] {x, new ValueLiteral('1')});
+    assertEquals("AddNodeFactory", s.getName());
+
+    s = ps.getParserSpecializer("+", new ExprNode[] {x, new ValueLiteral("1")});
+    assertEquals("AddNodeFactory", s.getName());
+
+    s = ps.getEagerSpecializer("+", new Object[] {5, 1}, new ExprNode[] {x, one});
+    assertEquals("IncrementNodeFactory", s.getName());
+  }
+
+  @Test
+  public void testFoldPurePrimitive() {
+    ExprNode folded = ps.fold("*", new ExprNode[] {new IntLiteral(3), new IntLiteral(4)},
+        null, null);
+    assertTrue(folded instanceof IntLiteral);
+    assertEquals(12, ((IntLiteral) folded).getValue());
+
+    assertNull("not all arguments are constant",
+        ps.fold("*", new ExprNode[] {new IntLiteral(3), new IncNode()}, null, null));
+    assertNull("the primitive does not support the values",
+        ps.fold("*", new ExprNode[] {new IntLiteral(3), new BoolLiteral(true)}, null, null));
+    assertNull("+ is not pure",
+        ps.fold("+", new ExprNode[] {new IntLiteral(3), new IntLiteral(4)}, null, null));
+    assertNull("unknown selector",
+        ps.fold("---", new ExprNode[] {new IntLiteral(3)}, null, null));
+  }
 }
@@ -3,29 +3,53 @@ package bd.primitives;
 import java.util.ArrayList;
 import java.util.List;
 
+import com.oracle.truffle.api.dsl.NodeFactory;
+import com.oracle.truffle.api.source.SourceSection;
+
 import bd.testsetup.AbsNodeFactory;
 import bd.testsetup.AddAbsNodeFactory;
+import bd.testsetup.AddDoubleNodeFactory;
 import bd.testsetup.AddNodeFactory;
 import bd.testsetup.AddWithSpecializerNodeFactory;
 import bd.testsetup.ExprNode;
+import bd.testsetup.IncrementNodeFactory;
+import bd.testsetup.IntLiteral;
 import bd.testsetup.LangContext;
+import bd.testsetup.MultiplyNodeFactory;
 import bd.testsetup.StringId;
 
 
 public class Primitives extends PrimitiveLoader<LangContext, ExprNode, String> {
+  protected final List<Specializer<LangContext, ExprNode, String>> registered =
+      new ArrayList<>();
+
   protected Primitives() {
     super(new StringId());
     initialize();
   }
 
+  protected Primitives(final PrimitiveTable<LangContext, ExprNode, String> table) {
+    super(table);
+    initialize();
+  }
+
+  /** Create a loader that creates specializers and registers primitives only on demand. */
+  protected Primitives(final List<NodeFactory<? extends ExprNode>> factories) {
+    super(new StringId());
+    initializeLazily(factories);
+  }
+
   @Override
   protected List<Specializer<LangContext, ExprNode, String>> getSpecializers() {
     List<Specializer<LangContext, ExprNode, String>> allSpecializers = new ArrayList<>();
 
     add(allSpecializers, AddNodeFactory.getInstance());
+    add(allSpecializers, AddDoubleNodeFactory.getInstance());
     add(allSpecializers, AddWithSpecializerNodeFactory.getInstance());
     add(allSpecializers, AbsNodeFactory.getInstance());
     add(allSpecializers, AddAbsNodeFactory.getInstance());
+    add(allSpecializers, IncrementNodeFactory.getInstance());
+    add(allSpecializers, MultiplyNodeFactory.getInstance());
 
     return allSpecializers;
   }
@@ -33,6 +57,14 @@ public class Primitives extends PrimitiveLoader<LangContext, ExprNode, String> {
   @Override
   protected void registerPrimitive(
       final Specializer<LangContext, ExprNode, String> specializer) {
-    /* not needed for testing */
+    registered.add(specializer);
+  }
+
+  @Override
+  protected ExprNode createConstant(final Object value, final SourceSection source) {
+    if (value instanceof Integer) {
+      return new IntLiteral((int) value).initialize(source);
+    }
+    return null;
   }
 }
@@ -0,0 +1,76 @@
+package bd.sendsite;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import org.junit.Test;
+
+import bd.basic.IdProvider;
+import bd.basic.ProgramDefinitionError;
+import bd.inlining.InlinableNodes;
+import bd.primitives.Primitives;
+import bd.sendsite.SendSiteResolver.Kind;
+import bd.sendsite.SendSiteResolver.Resolution;
+import bd.testsetup.BoolLiteral;
+import bd.testsetup.ExprNode;
+import bd.testsetup.GeneratedInliners;
+import bd.testsetup.IntLiteral;
+import bd.testsetup.LambdaNode;
+import bd.testsetup.LangContext;
+import bd.testsetup.StringId;
+
+
+public class SendSiteResolverTests {
+
+  private final Primitives ps = new Primitives() {};
+
+  private final IdProvider<String> ids = ps.getTable().getIdProvider();
+
+  private final SendSiteResolver<LangContext, ExprNode, String> resolver =
+      new SendSiteResolver<>(ids, new InlinableNodes<>(ids, GeneratedInliners.INSTANCE), ps);
+
+  @Test
+  public void testDifferentIdProviderIsRejected() {
+    try {
+      new SendSiteResolver<>(new StringId(),
+          new InlinableNodes<>(ids, GeneratedInliners.INSTANCE), ps);
+      fail("a different id provider is rejected");
+    } catch (IllegalArgumentException e) {
+      // expected
+    }
+  }
+
+  @Test
+  public void testResolve() throws ProgramDefinitionError {
+    Resolution<LangContext, ExprNode, String> r = resolver.resolve("ifTrue:",
+        new ExprNode[] {new BoolLiteral(true), new LambdaNode()}, null, null);
+    assertEquals(Kind.INLINED, r.getKind());
+    assertTrue(r.getNode() instanceof LambdaNode);
+    assertNull(r.getSpecializer());
+
+    r = resolver.resolve("+", new ExprNode[] {new IntLiteral(3), new IntLiteral(4)}, null,
+        null);
+    assertEquals(Kind.EAGER_PRIMITIVE, r.getKind());
+    assertEquals("AddNodeFactory", r.getSpecializer().getName());
+    assertNull(r.getNode());
+
+    r = resolver.resolve("---", new ExprNode[] {new IntLiteral(3)}, null, null);
+    assertEquals(Kind.GENERIC, r.getKind());
+  }
+
+  @Test
+  public void testResolutionsAreReused() throws ProgramDefinitionError {
+    Resolution<LangContext, ExprNode, String> r = resolver.resolve("+",
+        new ExprNode[] {new IntLiteral(3), new IntLiteral(4)}, null, null);
+    assertSame(r, resolver.resolve("+",
+        new ExprNode[] {new IntLiteral(5), new IntLiteral(6)}, null, null));
+
+    Resolution<LangContext, ExprNode, String> generic =
+        resolver.resolve("---", new ExprNode[] {new IntLiteral(3)}, null, null);
+    assertSame(generic,
+        resolver.resolve("***", new ExprNode[] {new IntLiteral(3)}, null, null));
+  }
+}
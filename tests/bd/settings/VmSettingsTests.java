@@ -1,5 +1,6 @@
 package bd.settings;
 
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 
 import org.junit.Test;
@@ -10,5 +11,8 @@ public class VmSettingsTests {
   @Test
   public void testDefaultValuesOfSettings() {
     assertFalse(VmSettings.DYNAMIC_METRICS);
+    assertFalse(VmSettings.PRIMITIVE_STATISTICS);
+    assertEquals(0, VmSettings.EAGER_REWRITE_SITE_THRESHOLD);
+    assertEquals(0, VmSettings.EAGER_REWRITE_SELECTOR_THRESHOLD);
   }
 }
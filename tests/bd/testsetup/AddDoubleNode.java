@@ -0,0 +1,20 @@
+package bd.testsetup;
+
+import com.oracle.truffle.api.dsl.GenerateNodeFactory;
+import com.oracle.truffle.api.dsl.NodeChild;
+import com.oracle.truffle.api.dsl.Specialization;
+
+import bd.primitives.Primitive;
+
+
+@NodeChild(value = "left", type = ExprNode.class)
+@NodeChild(value = "right", type = ExprNode.class)
+@Primitive(className = "Double", primitive = "+", selector = "+", receiverType = Double.class)
+@GenerateNodeFactory
+public abstract class AddDoubleNode extends ExprNode {
+
+  @Specialization
+  public double add(final double left, final double right) {
+    return left + right;
+  }
+}
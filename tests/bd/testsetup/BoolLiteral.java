@@ -0,0 +1,24 @@
+package bd.testsetup;
+
+import com.oracle.truffle.api.frame.VirtualFrame;
+
+import bd.basic.nodes.Constant;
+
+
+public final class BoolLiteral extends ExprNode implements Constant {
+  private final boolean value;
+
+  public BoolLiteral(final boolean val) {
+    this.value = val;
+  }
+
+  @Override
+  public Object executeGeneric(final VirtualFrame frame) {
+    return value;
+  }
+
+  @Override
+  public Object getValue() {
+    return value;
+  }
+}
@@ -0,0 +1,27 @@
+package bd.testsetup;
+
+import com.oracle.truffle.api.frame.VirtualFrame;
+
+import bd.inlining.Inline;
+
+
+@Inline(selector = "ifTrue:", inlineableArgIdx = {1}, foldIfTrueArgIdx = 1)
+public final class IfTrueNode extends ExprNode {
+
+  @Child public ExprNode cond;
+  @Child public ExprNode body;
+
+  public IfTrueNode(final ExprNode cond, final ExprNode originalBody,
+      final ExprNode inlinedBody) {
+    this.cond = cond;
+    this.body = inlinedBody;
+  }
+
+  @Override
+  public Object executeGeneric(final VirtualFrame frame) {
+    if ((boolean) cond.executeGeneric(frame)) {
+      return body.executeGeneric(frame);
+    }
+    return null;
+  }
+}
@@ -0,0 +1,33 @@
+package bd.testsetup;
+
+import com.oracle.truffle.api.dsl.UnsupportedSpecializationException;
+import com.oracle.truffle.api.frame.VirtualFrame;
+import com.oracle.truffle.api.nodes.Node;
+
+import bd.primitives.nodes.PreevaluatedExpression;
+
+
+public class IncNode extends ExprNode implements PreevaluatedExpression {
+
+  private int count;
+
+  /** Returns the number of executions, i.e., a value that is not constant. */
+  @Override
+  public Object executeGeneric(final VirtualFrame frame) {
+    count += 1;
+    return count;
+  }
+
+  @Override
+  public Object doPreEvaluated(final VirtualFrame frame, final Object[] args) {
+    return doPreUnary(frame, args[0]);
+  }
+
+  @Override
+  public Object doPreUnary(final VirtualFrame frame, final Object arg0) {
+    if (arg0 instanceof Integer) {
+      return (int) arg0 + 1;
+    }
+    throw new UnsupportedSpecializationException(this, new Node[] {null}, arg0);
+  }
+}
@@ -0,0 +1,24 @@
+package bd.testsetup;
+
+import com.oracle.truffle.api.dsl.GenerateNodeFactory;
+import com.oracle.truffle.api.dsl.NodeChild;
+import com.oracle.truffle.api.dsl.Specialization;
+
+import bd.basic.nodes.Constant;
+import bd.primitives.Primitive;
+import bd.primitives.Primitive.ArgNode;
+
+
+@NodeChild(value = "left", type = ExprNode.class)
+@NodeChild(value = "right", type = ExprNode.class)
+@Primitive(selector = "+", receiverType = Integer.class,
+    argNodes = @ArgNode(index = 1, type = Constant.class, value = "1",
+        valueType = Integer.class))
+@GenerateNodeFactory
+public abstract class IncrementNode extends ExprNode {
+
+  @Specialization
+  public int inc(final int left, final int right) {
+    return left + 1;
+  }
+}
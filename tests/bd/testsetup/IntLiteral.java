@@ -2,8 +2,10 @@ package bd.testsetup;
 
 import com.oracle.truffle.api.frame.VirtualFrame;
 
+import bd.basic.nodes.Constant;
 
-public final class IntLiteral extends ExprNode {
+
+public final class IntLiteral extends ExprNode implements Constant {
   private final int value;
 
   public IntLiteral(final int val) {
@@ -19,4 +21,9 @@ public final class IntLiteral extends ExprNode {
   public int executeInt(final VirtualFrame frame) {
     return value;
   }
+
+  @Override
+  public Object getValue() {
+    return value;
+  }
 }
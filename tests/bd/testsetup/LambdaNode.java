@@ -8,6 +8,16 @@ import bd.inlining.nodes.Inlinable;
 
 public final class LambdaNode extends ExprNode implements Inlinable<TScopeBuilder> {
 
+  @Child public ExprNode body;
+
+  public LambdaNode() {
+    this(null);
+  }
+
+  public LambdaNode(final ExprNode body) {
+    this.body = body;
+  }
+
   @Override
   public Object executeGeneric(final VirtualFrame frame) {
     return null;
@@ -15,6 +25,9 @@ public final class LambdaNode extends ExprNode implements Inlinable<TScopeBuilde
 
   @Override
   public ExprNode inline(final TScopeBuilder scopeBuilder) {
+    if (scopeBuilder != null) {
+      scopeBuilder.addLocal("inlinedLocal");
+    }
     return new LambdaNode();
   }
 }
@@ -0,0 +1,44 @@
+package bd.testsetup;
+
+import com.oracle.truffle.api.dsl.GenerateNodeFactory;
+import com.oracle.truffle.api.dsl.NodeChild;
+import com.oracle.truffle.api.dsl.Specialization;
+import com.oracle.truffle.api.frame.VirtualFrame;
+import com.oracle.truffle.api.source.SourceSection;
+
+import bd.primitives.Primitive;
+import bd.primitives.nodes.EagerlySpecializable;
+import bd.primitives.nodes.PreevaluatedExpression;
+
+
+@NodeChild(value = "left", type = ExprNode.class)
+@NodeChild(value = "right", type = ExprNode.class)
+@Primitive(selector = "*", receiverType = Integer.class, pure = true)
+@GenerateNodeFactory
+public abstract class MultiplyNode extends ExprNode
+    implements EagerlySpecializable<ExprNode, String, LangContext>, PreevaluatedExpression {
+
+  public abstract Object executeEvaluated(Object left, Object right);
+
+  @Override
+  public Object doPreEvaluated(final VirtualFrame frame, final Object[] args) {
+    return executeEvaluated(args[0], args[1]);
+  }
+
+  @Specialization
+  public int mul(final int left, final int right) {
+    return left * right;
+  }
+
+  @Override
+  public ExprNode initialize(final SourceSection sourceSection, final boolean eagerlyWrapped) {
+    initialize(sourceSection);
+    return this;
+  }
+
+  @Override
+  public ExprNode wrapInEagerWrapper(final String selector, final ExprNode[] arguments,
+      final LangContext context) {
+    return this;
+  }
+}
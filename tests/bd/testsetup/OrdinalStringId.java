@@ -0,0 +1,22 @@
+package bd.testsetup;
+
+import java.util.HashMap;
+
+import bd.basic.OrdinalIdProvider;
+
+
+public class OrdinalStringId implements OrdinalIdProvider<String> {
+  private final HashMap<String, Integer> ordinals = new HashMap<>();
+
+  @Override
+  public String getId(final String id) {
+    String interned = id.intern();
+    ordinals.computeIfAbsent(interned, k -> ordinals.size());
+    return interned;
+  }
+
+  @Override
+  public int getOrdinal(final String id) {
+    return ordinals.get(id);
+  }
+}